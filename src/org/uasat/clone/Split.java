@@ -32,7 +32,11 @@ public class Split {
 	public boolean trace = false;
 
 	public Split(FinitelyGen clone1, FinitelyRel clone2) {
-		this.solver = SatSolver.getDefault();
+		this(clone1, clone2, SatSolver.getDefault());
+	}
+
+	public Split(FinitelyGen clone1, FinitelyRel clone2, SatSolver<?> solver) {
+		this.solver = solver;
 		this.clone1 = clone1;
 		this.clone2 = clone2;
 
@@ -89,6 +93,10 @@ public class Split {
 				}
 			};
 
+			// climbing from the previous pair, start the search from there
+			if ((above != null || below != null) && rel != null && op != null)
+				problem.hints = Arrays.asList(rel.getTensor(), op.getTensor());
+
 			List<Tensor<Boolean>> sol = problem.solveOne(solver);
 			if (sol == null) {
 				rel = null;
@@ -171,6 +171,48 @@ public abstract class BoolAlgebra<BOOL> {
 		return not(lexLess(elem2, elem1));
 	}
 
+	/**
+	 * Returns the lex-leader condition for the given permutations of the
+	 * positions of the tensor: the elements are lexicographically not greater
+	 * than their rearrangement by any of the permutations, where position i
+	 * of the rearrangement holds the element at position perm[i]. If the
+	 * permutations generate a symmetry group of the problem, then this keeps
+	 * at least one solution from each orbit. The positions fixed by a
+	 * permutation are skipped.
+	 */
+	public BOOL lexLeader(Tensor<BOOL> tensor, List<int[]> perms) {
+		BOOL b = TRUE;
+		for (int[] perm : perms) {
+			assert perm.length == tensor.getElemCount();
+
+			List<BOOL> elem1 = new ArrayList<BOOL>();
+			List<BOOL> elem2 = new ArrayList<BOOL>();
+			for (int i = 0; i < perm.length; i++)
+				if (perm[i] != i) {
+					elem1.add(tensor.getElemAt(i));
+					elem2.add(tensor.getElemAt(perm[i]));
+				}
+
+			b = and(b, lexLeq(elem1, elem2));
+		}
+		return b;
+	}
+
+	/**
+	 * Opens a named attribution scope. Solvers charge the variables, clauses
+	 * and time spent until the matching {@link #popScope(String)} to this
+	 * scope, concrete algebras ignore it.
+	 */
+	public void pushScope(String name) {
+	}
+
+	/**
+	 * Closes the innermost open scope with the given name, and also the
+	 * scopes opened inside it that an exception left open.
+	 */
+	public void popScope(String name) {
+	}
+
 	protected final Func1<BOOL, BOOL> NOT = new Func1<BOOL, BOOL>() {
 		@Override
 		public BOOL call(BOOL elem) {
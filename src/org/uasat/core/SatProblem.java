@@ -60,13 +60,75 @@ public abstract class SatProblem {
 		return compute(BoolAlgebra.INSTANCE, tensors);
 	}
 
+	/**
+	 * Preferred values of the variables, usually a previous solution of a
+	 * closely related problem. If set, then it must have the same shapes as
+	 * the masks. The solveOne method then replaces it with the
+	 * solution found.
+	 */
+	public List<Tensor<Boolean>> hints = null;
+
+	/**
+	 * Values of the entries outside of the masks. If set, then these entries
+	 * are encoded as constants instead of variables, otherwise the masks only
+	 * select the entries that distinguish the solutions in solveAll.
+	 */
+	public List<Tensor<Boolean>> constants = null;
+
+	/**
+	 * Sets the constants so that every entry outside of the masks has the
+	 * given value.
+	 */
+	public void fixUnmasked(boolean value) {
+		constants = new ArrayList<Tensor<Boolean>>();
+		for (Tensor<Boolean> mask : masks)
+			constants.add(Tensor.constant(mask.getShape(), value));
+	}
+
+	private <BOOL> List<Tensor<BOOL>> createVariables(SatSolver<BOOL> solver) {
+		List<Tensor<BOOL>> tensors = new ArrayList<Tensor<BOOL>>();
+		for (int i = 0; i < masks.size(); i++) {
+			Tensor<Boolean> mask = masks.get(i);
+			int[] shape = mask.getShape();
+
+			Tensor<Boolean> hint = hints != null ? hints.get(i) : null;
+			if (hint != null && !Arrays.equals(shape, hint.getShape()))
+				throw new IllegalArgumentException("hint shape mismatch");
+
+			Tensor<Boolean> constant = constants != null ? constants.get(i)
+					: null;
+			if (constant != null && !Arrays.equals(shape, constant.getShape()))
+				throw new IllegalArgumentException("constant shape mismatch");
+
+			if (constant == null && hint == null)
+				tensors.add(Tensor.generate(solver.type, shape, solver.VARIABLE));
+			else {
+				Tensor<BOOL> tensor = Tensor.constant(solver.type, shape,
+						solver.FALSE);
+				for (int j = 0; j < tensor.getElemCount(); j++) {
+					BOOL b;
+					if (constant != null && !mask.getElemAt(j))
+						b = solver.lift(constant.getElemAt(j));
+					else if (hint != null)
+						b = solver.variable(hint.getElemAt(j));
+					else
+						b = solver.variable();
+					tensor.setElemAt(j, b);
+				}
+				tensors.add(tensor);
+			}
+		}
+		return tensors;
+	}
+
+	/*
+	 * The solve methods throw SatSolver.UnknownException when the time limit
+	 * of the solver is exceeded or the calling thread is interrupted.
+	 */
 	public <BOOL> boolean isSolvable(SatSolver<BOOL> solver) {
 		solver.clear();
 
-		List<Tensor<BOOL>> tensors = new ArrayList<Tensor<BOOL>>();
-		for (Tensor<Boolean> mask : masks)
-			tensors.add(Tensor.generate(solver.type, mask.getShape(),
-					solver.VARIABLE));
+		List<Tensor<BOOL>> tensors = createVariables(solver);
 
 		solver.clause(compute(solver, tensors));
 
@@ -76,10 +138,7 @@ public abstract class SatProblem {
 	public <BOOL> List<Tensor<Boolean>> solveOne(SatSolver<BOOL> solver) {
 		solver.clear();
 
-		List<Tensor<BOOL>> tensors = new ArrayList<Tensor<BOOL>>();
-		for (Tensor<Boolean> mask : masks)
-			tensors.add(Tensor.generate(solver.type, mask.getShape(),
-					solver.VARIABLE));
+		List<Tensor<BOOL>> tensors = createVariables(solver);
 
 		solver.clause(compute(solver, tensors));
 
@@ -91,42 +150,49 @@ public abstract class SatProblem {
 			solution.add(Tensor.map(Boolean.TYPE, solver.DECODE, tensor));
 
 		assert check(solution);
+		if (hints != null)
+			hints = solution;
 		return solution;
 	}
 
+	/**
+	 * Returns the solutions that solveAll excludes after finding the given
+	 * one, and the first of them that satisfies the problem is reported
+	 * instead of the found one. By default this is the solution itself.
+	 * Subclasses can return the orbit of the solution under a symmetry of the
+	 * problem, in canonical order, to get one solution from each orbit.
+	 */
+	protected List<List<Tensor<Boolean>>> getOrbit(
+			List<Tensor<Boolean>> solution) {
+		List<List<Tensor<Boolean>>> orbit = new ArrayList<List<Tensor<Boolean>>>();
+		orbit.add(solution);
+		return orbit;
+	}
+
 	public <BOOL> List<Tensor<Boolean>> solveAll(SatSolver<BOOL> solver,
 			int maxCount) {
 		solver.clear();
 
-		List<Tensor<BOOL>> tensors = new ArrayList<Tensor<BOOL>>();
-		for (Tensor<Boolean> mask : masks)
-			tensors.add(Tensor.generate(solver.type, mask.getShape(),
-					solver.VARIABLE));
+		List<Tensor<BOOL>> tensors = createVariables(solver);
 
 		solver.clause(compute(solver, tensors));
 
 		List<List<Tensor<Boolean>>> solutions = new ArrayList<List<Tensor<Boolean>>>();
 		while (solver.solve()) {
-			List<BOOL> exclude = new ArrayList<BOOL>();
-
 			List<Tensor<Boolean>> solution = new ArrayList<Tensor<Boolean>>();
 			for (int key = 0; key < masks.size(); key++) {
 				Tensor<BOOL> t = tensors.get(key);
-				Tensor<Boolean> s = Tensor.map(Boolean.TYPE, solver.DECODE, t);
-				solution.add(s);
-
-				t = Tensor.map2(solver.ADD,
-						Tensor.map(solver.type, solver.LIFT, s), t);
-
-				Iterator<Boolean> iter = masks.get(key).iterator();
-				for (BOOL b : t) {
-					if (iter.next())
-						exclude.add(b);
-				}
-				assert !iter.hasNext();
+				solution.add(Tensor.map(Boolean.TYPE, solver.DECODE, t));
 			}
 
 			assert check(solution);
+			List<List<Tensor<Boolean>>> orbit = getOrbit(solution);
+			if (orbit.size() > 1)
+				for (List<Tensor<Boolean>> other : orbit)
+					if (check(other)) {
+						solution = other;
+						break;
+					}
 			solutions.add(solution);
 
 			if (solutions.size() == maxCount) {
@@ -139,7 +205,8 @@ public abstract class SatProblem {
 					System.out.println("... still working, " + solutions.size()
 							+ " solutions so far ...");
 
-			solver.clause(exclude);
+			for (List<Tensor<Boolean>> other : orbit)
+				solver.clause(exclude(solver, tensors, other));
 		}
 
 		List<Tensor<Boolean>> result = new ArrayList<Tensor<Boolean>>();
@@ -155,6 +222,30 @@ public abstract class SatProblem {
 		return result;
 	}
 
+	/*
+	 * Returns the clause saying that the masked entries of the variables are
+	 * not all equal to the given solution.
+	 */
+	private <BOOL> List<BOOL> exclude(SatSolver<BOOL> solver,
+			List<Tensor<BOOL>> tensors, List<Tensor<Boolean>> solution) {
+		List<BOOL> exclude = new ArrayList<BOOL>();
+
+		for (int key = 0; key < masks.size(); key++) {
+			Tensor<BOOL> t = Tensor.map2(solver.ADD,
+					Tensor.map(solver.type, solver.LIFT, solution.get(key)),
+					tensors.get(key));
+
+			Iterator<Boolean> iter = masks.get(key).iterator();
+			for (BOOL b : t) {
+				if (iter.next())
+					exclude.add(b);
+			}
+			assert !iter.hasNext();
+		}
+
+		return exclude;
+	}
+
 	public <BOOL> List<Tensor<Boolean>> solveAll(SatSolver<BOOL> solver) {
 		return solveAll(solver, 0);
 	}
@@ -18,6 +18,8 @@
 
 package org.uasat.core;
 
+import java.io.*;
+import java.text.*;
 import java.util.*;
 
 import org.uasat.solvers.*;
@@ -58,6 +60,30 @@ public abstract class SatSolver<BOOL> extends BoolAlgebra<BOOL> {
 
 	public boolean debugging = false;
 
+	public enum Result {
+		SATISFIABLE, UNSATISFIABLE, UNKNOWN
+	}
+
+	@SuppressWarnings("serial")
+	public static class UnknownException extends RuntimeException {
+		public UnknownException() {
+			super("solver was interrupted or ran out of time");
+		}
+	}
+
+	/**
+	 * Wall-clock limit in milliseconds for a single solve call, zero means no
+	 * limit. When it is exceeded the solve call returns UNKNOWN.
+	 */
+	public long timeLimit = 0;
+
+	/**
+	 * If set, then interrupting the calling thread aborts a running solve
+	 * call with an UNKNOWN result even for backends that need a helper thread
+	 * for that. The interrupt flag of the thread is left set.
+	 */
+	public boolean interruptible = false;
+
 	public abstract int getTotalVariables();
 
 	public abstract int getTotalClauses();
@@ -80,10 +106,147 @@ public abstract class SatSolver<BOOL> extends BoolAlgebra<BOOL> {
 
 	public abstract void clause(BOOL lit1, BOOL lit2, BOOL lit3);
 
-	public abstract boolean solve();
+	/**
+	 * Solves the current problem within the configured time limit. After an
+	 * UNKNOWN result the solver must be cleared before it is used again.
+	 */
+	public abstract Result solveLimited();
+
+	public boolean solve() {
+		Result result = solveLimited();
+		if (result == Result.UNKNOWN)
+			throw new UnknownException();
+
+		return result == Result.SATISFIABLE;
+	}
 
 	public abstract boolean decode(BOOL term);
 
+	public static class Scope {
+		public final String name;
+		public int calls = 0;
+		public long variables = 0;
+		public long clauses = 0;
+		public long nanos = 0;
+
+		public Scope(String name) {
+			this.name = name;
+		}
+	}
+
+	private final Map<String, Scope> scopes = new LinkedHashMap<String, Scope>();
+	private final List<Scope> scopeStack = new ArrayList<Scope>();
+	private final Scope unscoped = new Scope("(unscoped)");
+	private int scopeVariables = 0;
+	private int scopeClauses = 0;
+	private long scopeTime = System.nanoTime();
+
+	private void chargeScope() {
+		int variables = getTotalVariables();
+		int clauses = getTotalClauses();
+		long time = System.nanoTime();
+
+		Scope scope = scopeStack.isEmpty() ? unscoped : scopeStack
+				.get(scopeStack.size() - 1);
+		scope.variables += variables - scopeVariables;
+		scope.clauses += clauses - scopeClauses;
+		scope.nanos += time - scopeTime;
+
+		scopeVariables = variables;
+		scopeClauses = clauses;
+		scopeTime = time;
+	}
+
+	@Override
+	public void pushScope(String name) {
+		chargeScope();
+
+		String path = name;
+		if (!scopeStack.isEmpty())
+			path = scopeStack.get(scopeStack.size() - 1).name + "/" + name;
+
+		Scope scope = scopes.get(path);
+		if (scope == null) {
+			scope = new Scope(path);
+			scopes.put(path, scope);
+		}
+
+		scope.calls += 1;
+		scopeStack.add(scope);
+	}
+
+	@Override
+	public void popScope(String name) {
+		int i = scopeStack.size() - 1;
+		while (i >= 0) {
+			String path = scopeStack.get(i).name;
+			if (path.equals(name) || path.endsWith("/" + name))
+				break;
+			i--;
+		}
+
+		if (i < 0)
+			throw new IllegalStateException("scope " + name + " is not open");
+
+		chargeScope();
+		while (scopeStack.size() > i)
+			scopeStack.remove(scopeStack.size() - 1);
+	}
+
+	/**
+	 * Returns the scopes opened so far with the variables, clauses and time
+	 * charged to them exclusively (not counting nested scopes).
+	 */
+	public List<Scope> getScopes() {
+		if (scopeStack.isEmpty())
+			chargeScope();
+
+		List<Scope> list = new ArrayList<Scope>(scopes.values());
+		if (unscoped.variables != 0 || unscoped.clauses != 0)
+			list.add(unscoped);
+
+		return list;
+	}
+
+	/**
+	 * Clears the collected statistics and closes the scopes that an exception
+	 * left open.
+	 */
+	public void resetScopes() {
+		scopeStack.clear();
+		scopes.clear();
+		unscoped.variables = 0;
+		unscoped.clauses = 0;
+		unscoped.nanos = 0;
+
+		scopeVariables = getTotalVariables();
+		scopeClauses = getTotalClauses();
+		scopeTime = System.nanoTime();
+	}
+
+	private static final String TIME_PATTERN = "0.000";
+
+	public void printScopes(PrintStream out) {
+		List<Scope> list = getScopes();
+		Collections.sort(list, new Comparator<Scope>() {
+			@Override
+			public int compare(Scope o1, Scope o2) {
+				return Long.compare(o2.clauses, o1.clauses);
+			}
+		});
+
+		DecimalFormat format = new DecimalFormat(TIME_PATTERN);
+		out.println("scope\tcalls\tvariables\tclauses\tseconds");
+		for (Scope scope : list)
+			out.println(scope.name + "\t" + scope.calls + "\t"
+					+ scope.variables + "\t" + scope.clauses + "\t"
+					+ format.format(1e-9 * scope.nanos));
+	}
+
+	public void printScopes() {
+		printScopes(System.out);
+	}
+
 	public final Func0<BOOL> VARIABLE = new Func0<BOOL>() {
 		@Override
 		public BOOL call() {
@@ -91,6 +254,14 @@ public abstract class SatSolver<BOOL> extends BoolAlgebra<BOOL> {
 		}
 	};
 
+	/**
+	 * Creates a new variable whose value the solver should try first. Backends
+	 * that cannot take phase hints create an ordinary variable.
+	 */
+	public BOOL variable(boolean phase) {
+		return variable();
+	}
+
 	public final Func1<Boolean, BOOL> DECODE = new Func1<Boolean, BOOL>() {
 		@Override
 		public Boolean call(BOOL elem) {
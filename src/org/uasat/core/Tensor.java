@@ -83,6 +83,28 @@ public abstract class Tensor<ELEM> implements Iterable<ELEM> {
 
 	protected abstract boolean equalElems(Tensor<?> dst);
 
+	/**
+	 * Sets the elements in the given range to the same value.
+	 */
+	protected void fillElems(int start, int end, ELEM elem) {
+		for (int i = start; i < end; i++)
+			setElemAt(i, elem);
+	}
+
+	/**
+	 * Returns the common value of the elements in the given range if that is
+	 * known without looking at the individual elements, or null otherwise.
+	 */
+	protected ELEM getUniformElem(int start, int end) {
+		return null;
+	}
+
+	/**
+	 * Called by the producers when the tensor is fully written.
+	 */
+	protected void compact() {
+	}
+
 	private class Iter implements Iterator<ELEM> {
 		private int pos;
 		private final int end;
@@ -143,12 +165,28 @@ public abstract class Tensor<ELEM> implements Iterable<ELEM> {
 		this.shape = shape;
 	}
 
+	/**
+	 * Integer tensors hold the literals of the SAT solvers, which are mostly
+	 * the TRUE and FALSE constants after lifting. The elements are stored in
+	 * blocks, and a block where all elements are the same is stored as a
+	 * single value. The bulk operations work on these blocks at once.
+	 */
 	protected static class IntTensor extends Tensor<Integer> {
-		private final int[] array;
+		private static final int BLOCK_BITS = 6;
+		private static final int BLOCK_SIZE = 1 << BLOCK_BITS;
+		private static final int BLOCK_MASK = BLOCK_SIZE - 1;
+
+		private final int count;
+		private final int[][] blocks;
+		private final int[] fills;
 
 		public IntTensor(int[] shape) {
 			super(shape);
-			this.array = new int[Util.getShapeSize(shape)];
+			this.count = Util.getShapeSize(shape);
+
+			int n = (count + BLOCK_MASK) >>> BLOCK_BITS;
+			this.blocks = new int[n][];
+			this.fills = new int[n];
 		}
 
 		@Override
@@ -158,36 +196,122 @@ public abstract class Tensor<ELEM> implements Iterable<ELEM> {
 
 		@Override
 		public int getElemCount() {
-			return array.length;
+			return count;
 		}
 
 		@Override
 		public Integer getElemAt(int index) {
-			return array[index];
+			int[] block = blocks[index >>> BLOCK_BITS];
+			if (block != null)
+				return block[index & BLOCK_MASK];
+			else
+				return fills[index >>> BLOCK_BITS];
 		}
 
 		@Override
 		public void setElemAt(int index, Integer elem) {
-			array[index] = elem;
+			int b = index >>> BLOCK_BITS;
+			int[] block = blocks[b];
+			if (block == null) {
+				if (fills[b] == elem)
+					return;
+
+				block = new int[BLOCK_SIZE];
+				Arrays.fill(block, fills[b]);
+				blocks[b] = block;
+			}
+			block[index & BLOCK_MASK] = elem;
 		}
 
 		@Override
 		public void fillElems(Integer elem) {
-			Arrays.fill(array, elem);
+			Arrays.fill(blocks, null);
+			Arrays.fill(fills, elem);
+		}
+
+		@Override
+		protected void fillElems(int start, int end, Integer elem) {
+			while (start < end) {
+				int b = start >>> BLOCK_BITS;
+				int next = Math.min((b + 1) << BLOCK_BITS, end);
+				if ((start & BLOCK_MASK) == 0
+						&& (next == count || (next & BLOCK_MASK) == 0)) {
+					blocks[b] = null;
+					fills[b] = elem;
+				} else {
+					for (int i = start; i < next; i++)
+						setElemAt(i, elem);
+				}
+				start = next;
+			}
+		}
+
+		@Override
+		protected Integer getUniformElem(int start, int end) {
+			assert 0 <= start && start < end && end <= count;
+			int first = start >>> BLOCK_BITS;
+			int last = (end - 1) >>> BLOCK_BITS;
+
+			int elem = fills[first];
+			for (int b = first; b <= last; b++)
+				if (blocks[b] != null || fills[b] != elem)
+					return null;
+
+			return elem;
+		}
+
+		@Override
+		protected void compact() {
+			for (int b = 0; b < blocks.length; b++) {
+				int[] block = blocks[b];
+				if (block == null)
+					continue;
+
+				int length = Math.min(BLOCK_SIZE, count - (b << BLOCK_BITS));
+				int elem = block[0];
+				int i = 1;
+				while (i < length && block[i] == elem)
+					i++;
+
+				if (i >= length) {
+					blocks[b] = null;
+					fills[b] = elem;
+				}
+			}
 		}
 
 		@Override
 		protected void copyElems(int srcPos, Tensor<Integer> dst, int dstPos,
 				int length) {
-			System.arraycopy(array, srcPos, ((IntTensor) dst).array, dstPos,
-					length);
+			int end = srcPos + length;
+			while (srcPos < end) {
+				int next = Math.min((srcPos | BLOCK_MASK) + 1, end);
+				int[] block = blocks[srcPos >>> BLOCK_BITS];
+				if (block == null)
+					dst.fillElems(dstPos, dstPos + next - srcPos,
+							fills[srcPos >>> BLOCK_BITS]);
+				else
+					for (int i = srcPos; i < next; i++)
+						dst.setElemAt(dstPos + i - srcPos,
+								block[i & BLOCK_MASK]);
+
+				dstPos += next - srcPos;
+				srcPos = next;
+			}
 		}
 
 		@Override
 		protected boolean equalElems(Tensor<?> tensor) {
 			if (tensor instanceof IntTensor) {
 				IntTensor t = (IntTensor) tensor;
-				return Arrays.equals(array, t.array);
+				if (count != t.count)
+					return false;
+
+				for (int i = 0; i < count; i++)
+					if (!getElemAt(i).equals(t.getElemAt(i)))
+						return false;
+
+				return true;
 			} else
 				return false;
 		}
@@ -303,6 +427,7 @@ public abstract class Tensor<ELEM> implements Iterable<ELEM> {
 		for (int i = 0; i < tensor.getElemCount(); i++)
 			tensor.setElemAt(i, func.call());
 
+		tensor.compact();
 		return tensor;
 	}
 
@@ -329,6 +454,7 @@ public abstract class Tensor<ELEM> implements Iterable<ELEM> {
 			}
 		}
 
+		tensor.compact();
 		return tensor;
 	}
 
@@ -474,7 +600,11 @@ public abstract class Tensor<ELEM> implements Iterable<ELEM> {
 		for (int i = 0; i < shape.length; i++)
 			stepb[i] = stepa[i] * (shape[i] - 1);
 
-		if (tensor.getElemCount() > 0) {
+		ELEM uniform = arg.getElemCount() > 0 ? arg.getUniformElem(0,
+				arg.getElemCount()) : null;
+		if (uniform != null)
+			tensor.fillElems(uniform);
+		else if (tensor.getElemCount() > 0) {
 			int pos = 0;
 			int idx = 0;
 			outer: for (;;) {
@@ -492,18 +622,34 @@ public abstract class Tensor<ELEM> implements Iterable<ELEM> {
 				break;
 			}
 			assert idx == tensor.getElemCount();
+			tensor.compact();
 		}
 
 		return tensor;
 	}
 
+	/**
+	 * Applies the function to each element. The function is called only once
+	 * for a block of equal elements, so it must return equivalent results for
+	 * equal arguments.
+	 */
 	public static <ELEM, ELEM1> Tensor<ELEM> map(Class<ELEM> type,
 			Func1<ELEM, ELEM1> func, Tensor<ELEM1> arg) {
 		Tensor<ELEM> tensor = create(type, arg.shape);
 
-		for (int i = 0; i < tensor.getElemCount(); i++)
-			tensor.setElemAt(i, func.call(arg.getElemAt(i)));
+		int count = tensor.getElemCount();
+		for (int start = 0; start < count; start += IntTensor.BLOCK_SIZE) {
+			int end = Math.min(start + IntTensor.BLOCK_SIZE, count);
+
+			ELEM1 elem = arg.getUniformElem(start, end);
+			if (elem != null)
+				tensor.fillElems(start, end, func.call(elem));
+			else
+				for (int i = start; i < end; i++)
+					tensor.setElemAt(i, func.call(arg.getElemAt(i)));
+		}
 
+		tensor.compact();
 		return tensor;
 	}
 
@@ -518,9 +664,22 @@ public abstract class Tensor<ELEM> implements Iterable<ELEM> {
 		assert Arrays.equals(arg1.shape, arg2.shape);
 		Tensor<ELEM> tensor = create(type, arg1.shape);
 
-		for (int i = 0; i < tensor.getElemCount(); i++)
-			tensor.setElemAt(i, func.call(arg1.getElemAt(i), arg2.getElemAt(i)));
+		int count = tensor.getElemCount();
+		for (int start = 0; start < count; start += IntTensor.BLOCK_SIZE) {
+			int end = Math.min(start + IntTensor.BLOCK_SIZE, count);
+
+			ELEM1 elem1 = arg1.getUniformElem(start, end);
+			ELEM2 elem2 = elem1 != null ? arg2.getUniformElem(start, end)
+					: null;
+			if (elem2 != null)
+				tensor.fillElems(start, end, func.call(elem1, elem2));
+			else
+				for (int i = start; i < end; i++)
+					tensor.setElemAt(i,
+							func.call(arg1.getElemAt(i), arg2.getElemAt(i)));
+		}
 
+		tensor.compact();
 		return tensor;
 	}
 
@@ -540,12 +699,26 @@ public abstract class Tensor<ELEM> implements Iterable<ELEM> {
 		System.arraycopy(arg.shape, proj, shape, 0, shape.length);
 		Tensor<ELEM2> tensor = create(type, shape);
 
+		// slices of equal elements fold to the same value
+		ELEM1 last = null;
+		ELEM2 lastValue = null;
+
 		int pos = 0;
 		for (int i = 0; i < tensor.getElemCount(); i++) {
-			tensor.setElemAt(i, func.call(arg.sliceElems(pos, step)));
+			ELEM1 elem = step > 0 ? arg.getUniformElem(pos, pos + step) : null;
+			if (elem == null)
+				tensor.setElemAt(i, func.call(arg.sliceElems(pos, step)));
+			else {
+				if (!elem.equals(last)) {
+					last = elem;
+					lastValue = func.call(arg.sliceElems(pos, step));
+				}
+				tensor.setElemAt(i, lastValue);
+			}
 			pos += step;
 		}
 
+		tensor.compact();
 		return tensor;
 	}
 
@@ -574,6 +747,7 @@ public abstract class Tensor<ELEM> implements Iterable<ELEM> {
 			list.get(i).copyElems(0, tensor, pos, size);
 			pos += size;
 		}
+		tensor.compact();
 
 		return tensor;
 	}
@@ -595,6 +769,7 @@ public abstract class Tensor<ELEM> implements Iterable<ELEM> {
 		for (int i = 0; i < last; i++) {
 			Tensor<ELEM> t = create(tensor.getType(), shape);
 			tensor.copyElems(i * size, t, 0, size);
+			t.compact();
 			list.add(t);
 		}
 
@@ -681,6 +856,7 @@ public abstract class Tensor<ELEM> implements Iterable<ELEM> {
 				.getElemCount();
 		arg1.copyElems(0, tensor, 0, arg1.getElemCount());
 		arg2.copyElems(0, tensor, arg1.getElemCount(), arg2.getElemCount());
+		tensor.compact();
 
 		return tensor;
 	}
@@ -19,6 +19,7 @@
 package org.uasat.core;
 
 import java.util.*;
+import java.util.function.Consumer;
 
 public final class Util {
 	public static int[] createShape(int size, int arity) {
@@ -562,6 +563,187 @@ public final class Util {
 			return new InjIterator(arity, size);
 	}
 
+	/**
+	 * Returns the binomial coefficient n choose k, which must fit into a long.
+	 */
+	public static long binomial(int n, int k) {
+		if (k < 0 || k > n)
+			return 0;
+
+		k = Math.min(k, n - k);
+		long b = 1;
+		for (int i = 1; i <= k; i++)
+			b = Math.multiplyExact(b, n - k + i) / i;
+
+		return b;
+	}
+
+	/**
+	 * Returns the rank of a subset in the combinatorial number system, which
+	 * is its position in the order of the subset iterator.
+	 * 
+	 * @param subset
+	 *            the elements of the subset in increasing order
+	 * @return the sum of the binomial coefficients subset[i] choose i+1
+	 */
+	public static long getSubsetRank(int[] subset) {
+		long rank = 0;
+		for (int i = 0; i < subset.length; i++) {
+			assert i == 0 || subset[i - 1] < subset[i];
+			rank += binomial(subset[i], i + 1);
+		}
+		return rank;
+	}
+
+	/**
+	 * Returns the subset of the given cardinality with the given rank, the
+	 * inverse of getSubsetRank.
+	 */
+	public static int[] getSubset(long rank, int card) {
+		assert rank >= 0 && card >= 0;
+
+		int[] subset = new int[card];
+		for (int i = card - 1; i >= 0; i--) {
+			int c = i;
+			while (binomial(c + 1, i + 1) <= rank)
+				c++;
+
+			subset[i] = c;
+			rank -= binomial(c, i + 1);
+		}
+
+		assert rank == 0;
+		return subset;
+	}
+
+	private static class SubsetIterator implements Iterator<int[]> {
+		private final int[] subset;
+		private long remaining;
+		private boolean first;
+
+		public SubsetIterator(int card, long start, long end) {
+			assert 0 <= start && start <= end;
+
+			subset = getSubset(start, card);
+			remaining = end - start;
+			first = true;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return remaining > 0;
+		}
+
+		@Override
+		public int[] next() {
+			if (remaining <= 0)
+				throw new NoSuchElementException();
+
+			remaining -= 1;
+			if (first) {
+				first = false;
+				return subset;
+			}
+
+			int i = 0;
+			while (i < subset.length - 1 && subset[i] + 1 == subset[i + 1]) {
+				subset[i] = i;
+				i++;
+			}
+			subset[i]++;
+
+			return subset;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	/**
+	 * Returns an iterator that yields the subsets of the given cardinality of
+	 * the set of size <code>size</code> in colexicographic order (the largest
+	 * element increases the slowest). The returned array is reused.
+	 * 
+	 * @param size
+	 *            the size of the underlying set
+	 * @param card
+	 *            the number of elements of the subsets
+	 * @return an iterator for the subsets as increasing sequences
+	 */
+	public static Iterator<int[]> subsetIterator(int size, int card) {
+		assert size >= 0 && card >= 0;
+		return subsetIterator(size, card, 0, binomial(size, card));
+	}
+
+	/**
+	 * Returns an iterator that yields the subsets whose rank is at least
+	 * start and less than end, in the order of subsetIterator.
+	 */
+	public static Iterator<int[]> subsetIterator(int size, int card,
+			long start, long end) {
+		assert end <= binomial(size, card);
+		return new SubsetIterator(card, start, end);
+	}
+
+	private static class SubsetSpliterator implements Spliterator<int[]> {
+		private final int card;
+		private long start;
+		private final long end;
+		private Iterator<int[]> iter = null;
+
+		public SubsetSpliterator(int card, long start, long end) {
+			this.card = card;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super int[]> action) {
+			if (start >= end)
+				return false;
+
+			if (iter == null)
+				iter = new SubsetIterator(card, start, end);
+
+			start += 1;
+			action.accept(iter.next().clone());
+			return true;
+		}
+
+		@Override
+		public Spliterator<int[]> trySplit() {
+			if (iter != null || end - start < 2)
+				return null;
+
+			long mid = start + (end - start) / 2;
+			Spliterator<int[]> prefix = new SubsetSpliterator(card, start, mid);
+			start = mid;
+			return prefix;
+		}
+
+		@Override
+		public long estimateSize() {
+			return end - start;
+		}
+
+		@Override
+		public int characteristics() {
+			return ORDERED | DISTINCT | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+		}
+	}
+
+	/**
+	 * Returns a spliterator for the subsets in the order of subsetIterator.
+	 * It is split by ranks without enumerating the subsets, so it can feed a
+	 * parallel stream, and each subset is returned as a new array.
+	 */
+	public static Spliterator<int[]> subsetSpliterator(int size, int card) {
+		assert size >= 0 && card >= 0;
+		return new SubsetSpliterator(card, 0, binomial(size, card));
+	}
+
 	private static void printTuples(Iterator<int[]> iter) {
 		StringBuilder s = new StringBuilder();
 
@@ -611,5 +793,10 @@ public final class Util {
 		printTuples(injectiveIterator(2, 3));
 		printTuples(injectiveIterator(3, 3));
 		printTuples(injectiveIterator(4, 3));
+
+		printTuples(subsetIterator(0, 0));
+		printTuples(subsetIterator(3, 0));
+		printTuples(subsetIterator(4, 2));
+		printTuples(subsetIterator(3, 4));
 	}
 }
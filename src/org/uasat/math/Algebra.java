@@ -143,6 +143,112 @@ public final class Algebra<BOOL> implements Iterable<Operation<BOOL>> {
 				ops);
 	}
 
+	/**
+	 * Returns the subuniverse of the power of the algebra generated by the
+	 * tuples of the given relation. The tuples are processed with a worklist,
+	 * and each operation is applied only to argument lists that contain a
+	 * tuple not yet used with it.
+	 */
+	public static Relation<Boolean> generate(Algebra<Boolean> ua,
+			Relation<Boolean> gens) {
+		return generate(ua, SparseRelation.wrap(gens)).asRelation();
+	}
+
+	/**
+	 * Returns the subuniverse of the power of the algebra generated by the
+	 * tuples of the given sparse relation. Only the generated tuples are
+	 * stored, so this works for powers whose dense tensor would not fit.
+	 */
+	public static SparseRelation generate(Algebra<Boolean> ua,
+			SparseRelation gens) {
+		assert ua.getSize() == gens.getSize() && gens.getArity() >= 1;
+
+		final int size = ua.getSize();
+		final int arity = gens.getArity();
+
+		long positions = 1;
+		for (int i = 0; i < arity; i++) {
+			assert positions <= Long.MAX_VALUE / size;
+			positions *= size;
+		}
+
+		Set<Long> seen = new HashSet<Long>();
+		List<int[]> tuples = new ArrayList<int[]>();
+
+		for (int[] tuple : gens.getTuples())
+			addTuple(size, seen, tuples, tuple);
+
+		List<OperationTable> ops = OperationTable.decode(ua.operations);
+		for (OperationTable op : ops) {
+			if (op.getArity() == 0) {
+				int[] tuple = new int[arity];
+				Arrays.fill(tuple, op.getValue());
+				addTuple(size, seen, tuples, tuple);
+			}
+		}
+
+		// the number of tuples each operation was applied to
+		int[] done = new int[ops.size()];
+
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (int k = 0; k < ops.size(); k++) {
+				OperationTable op = ops.get(k);
+				if (op.getArity() == 0 || done[k] >= tuples.size())
+					continue;
+
+				int[][] args = new int[op.getArity()][];
+				int[] values = new int[op.getArity()];
+
+				for (int radius = done[k]; radius < tuples.size(); radius++) {
+					Iterator<int[]> iter = Util.hullIterator(radius,
+							op.getArity());
+					while (iter.hasNext()) {
+						int[] index = iter.next();
+						for (int j = 0; j < args.length; j++)
+							args[j] = tuples.get(index[j]);
+
+						int[] tuple = new int[arity];
+						for (int i = 0; i < arity; i++) {
+							for (int j = 0; j < values.length; j++)
+								values[j] = args[j][i];
+							tuple[i] = op.getValue(values);
+						}
+						addTuple(size, seen, tuples, tuple);
+					}
+				}
+
+				done[k] = tuples.size();
+				changed = true;
+			}
+		}
+
+		return SparseRelation.create(size, arity, tuples);
+	}
+
+	private static void addTuple(int size, Set<Long> seen, List<int[]> tuples,
+			int[] tuple) {
+		long pos = 0;
+		for (int i = tuple.length - 1; i >= 0; i--)
+			pos = pos * size + tuple[i];
+
+		if (seen.add(pos))
+			tuples.add(tuple);
+	}
+
+	/**
+	 * Returns the group of automorphisms of the concrete algebra, which are
+	 * the permutations preserving the graphs of the operations.
+	 */
+	public static PermGroup automorphisms(Algebra<Boolean> ua) {
+		List<Relation<Boolean>> rels = new ArrayList<Relation<Boolean>>();
+		for (Operation<Boolean> op : ua.getOperations())
+			rels.add(op.asRelation());
+
+		return PermGroup.automorphisms(ua.getSize(), rels);
+	}
+
 	public static void print(Algebra<Boolean> ua) {
 		List<Operation<Boolean>> ops = ua.operations;
 		System.out.println("algebra of size " + ua.getSize() + " with "
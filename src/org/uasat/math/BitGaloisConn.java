@@ -0,0 +1,415 @@
+/**
+ * Copyright (C) Miklos Maroti, 2018
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation; either version 2 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package org.uasat.math;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.uasat.core.*;
+
+/**
+ * A concrete Galois connection stored both by rows and by columns, so that
+ * new left or right elements can be appended without rebuilding it, and the
+ * closures are intersections of bitsets.
+ */
+public final class BitGaloisConn {
+	private final List<BitSet> rows = new ArrayList<BitSet>();
+	private final List<BitSet> cols = new ArrayList<BitSet>();
+
+	/**
+	 * When set, the closed sets are enumerated by the common fork join pool,
+	 * one task for each branch of the root. The found sets and their order
+	 * are the same as with the sequential enumeration.
+	 */
+	public boolean parallel = false;
+
+	/**
+	 * Creates an empty Galois connection, the left and right elements can be
+	 * added with addLeft and addRight.
+	 */
+	public BitGaloisConn() {
+	}
+
+	public int getLeftSize() {
+		return rows.size();
+	}
+
+	public int getRightSize() {
+		return cols.size();
+	}
+
+	public boolean get(int left, int right) {
+		return rows.get(left).get(right);
+	}
+
+	/**
+	 * Returns the right elements related to the given left element, the
+	 * returned set must not be modified.
+	 */
+	public BitSet getRow(int left) {
+		return rows.get(left);
+	}
+
+	/**
+	 * Returns the left elements related to the given right element, the
+	 * returned set must not be modified.
+	 */
+	public BitSet getColumn(int right) {
+		return cols.get(right);
+	}
+
+	/**
+	 * Appends a new left element related to the given right elements.
+	 */
+	public void addLeft(BitSet row) {
+		assert row.length() <= cols.size();
+
+		int left = rows.size();
+		rows.add((BitSet) row.clone());
+		for (int j = row.nextSetBit(0); j >= 0; j = row.nextSetBit(j + 1))
+			cols.get(j).set(left);
+	}
+
+	/**
+	 * Appends a new right element related to the given left elements.
+	 */
+	public void addRight(BitSet col) {
+		assert col.length() <= rows.size();
+
+		int right = cols.size();
+		cols.add((BitSet) col.clone());
+		for (int i = col.nextSetBit(0); i >= 0; i = col.nextSetBit(i + 1))
+			rows.get(i).set(right);
+	}
+
+	public BitSet rightClosure(BitSet left) {
+		BitSet right = new BitSet(cols.size());
+		right.set(0, cols.size());
+		for (int i = left.nextSetBit(0); i >= 0 && !right.isEmpty(); i = left
+				.nextSetBit(i + 1))
+			right.and(rows.get(i));
+		return right;
+	}
+
+	public BitSet leftClosure(BitSet right) {
+		BitSet left = new BitSet(rows.size());
+		left.set(0, rows.size());
+		for (int j = right.nextSetBit(0); j >= 0 && !left.isEmpty(); j = right
+				.nextSetBit(j + 1))
+			left.and(cols.get(j));
+		return left;
+	}
+
+	public boolean isLeftClosed(BitSet left) {
+		return leftClosure(rightClosure(left)).equals(left);
+	}
+
+	public boolean isRightClosed(BitSet right) {
+		return rightClosure(leftClosure(right)).equals(right);
+	}
+
+	private int getSideSize(boolean left) {
+		return left ? rows.size() : cols.size();
+	}
+
+	private BitSet closure(boolean left, BitSet set) {
+		return left ? leftClosure(rightClosure(set)) : rightClosure(leftClosure(set));
+	}
+
+	/*
+	 * Returns the lectically next closed set after the given one, or null if
+	 * the given set is the full set. A set is lectically smaller than another
+	 * if the smallest element of their symmetric difference is in the other.
+	 */
+	private BitSet nextClosed(boolean left, BitSet set) {
+		BitSet prefix = (BitSet) set.clone();
+		for (int i = getSideSize(left) - 1; i >= 0; i--) {
+			if (prefix.get(i)) {
+				prefix.clear(i);
+				continue;
+			}
+
+			prefix.set(i);
+			BitSet next = closure(left, prefix);
+			prefix.clear(i);
+
+			if (next.get(0, i).equals(prefix))
+				return next;
+		}
+		return null;
+	}
+
+	private Iterator<BitSet> closedIterator(final boolean left) {
+		return new Iterator<BitSet>() {
+			private BitSet next = closure(left, new BitSet());
+
+			@Override
+			public boolean hasNext() {
+				return next != null;
+			}
+
+			@Override
+			public BitSet next() {
+				if (next == null)
+					throw new NoSuchElementException();
+
+				BitSet set = next;
+				next = nextClosed(left, set);
+				return (BitSet) set.clone();
+			}
+		};
+	}
+
+	/**
+	 * Returns the closed sets of left elements in lectic order, each computed
+	 * from the previous one when requested (NextClosure).
+	 */
+	public Iterator<BitSet> leftClosedIterator() {
+		return closedIterator(true);
+	}
+
+	/**
+	 * Returns the closed sets of right elements in lectic order, each computed
+	 * from the previous one when requested (NextClosure).
+	 */
+	public Iterator<BitSet> rightClosedIterator() {
+		return closedIterator(false);
+	}
+
+	/*
+	 * Adds the closed sets of the subtree of the given set to the list in
+	 * lectic order (close by one). The children of a set are obtained by
+	 * adding a larger element than the one it was created with, and they are
+	 * visited from the largest element down.
+	 */
+	private void findClosed(boolean left, BitSet set, int start,
+			List<BitSet> list, int limit) {
+		list.add(set);
+
+		for (int i = getSideSize(left) - 1; i >= start; i--) {
+			if (list.size() == limit)
+				return;
+			if (set.get(i))
+				continue;
+
+			BitSet child = (BitSet) set.clone();
+			child.set(i);
+			child = closure(left, child);
+
+			if (child.get(0, i).equals(set.get(0, i)))
+				findClosed(left, child, i + 1, list, limit);
+		}
+	}
+
+	private List<BitSet> findClosedParallel(final boolean left,
+			final int limit) {
+		final BitSet root = closure(left, new BitSet());
+
+		List<Callable<List<BitSet>>> tasks = new ArrayList<Callable<List<BitSet>>>();
+		for (int i = getSideSize(left) - 1; i >= 0; i--) {
+			if (root.get(i))
+				continue;
+
+			final int r = i;
+			tasks.add(new Callable<List<BitSet>>() {
+				@Override
+				public List<BitSet> call() {
+					List<BitSet> list = new ArrayList<BitSet>();
+
+					BitSet child = (BitSet) root.clone();
+					child.set(r);
+					child = closure(left, child);
+
+					if (child.get(0, r).equals(root.get(0, r)))
+						findClosed(left, child, r + 1, list, limit);
+
+					return list;
+				}
+			});
+		}
+
+		List<BitSet> list = new ArrayList<BitSet>();
+		list.add(root);
+
+		try {
+			for (Future<List<BitSet>> future : ForkJoinPool.commonPool()
+					.invokeAll(tasks)) {
+				for (BitSet set : future.get()) {
+					if (list.size() == limit)
+						return list;
+					list.add(set);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		}
+
+		return list;
+	}
+
+	private List<BitSet> findClosedSets(boolean left, int limit) {
+		if (parallel)
+			return findClosedParallel(left, limit);
+
+		List<BitSet> list = new ArrayList<BitSet>();
+		findClosed(left, closure(left, new BitSet()), 0, list, limit);
+		return list;
+	}
+
+	/**
+	 * Returns the closed sets of left elements in lectic order. If the limit
+	 * is positive, then at most that many sets are returned.
+	 */
+	public List<BitSet> findLeftClosedSets(int limit) {
+		return findClosedSets(true, limit);
+	}
+
+	/**
+	 * Returns the closed sets of right elements in lectic order. If the limit
+	 * is positive, then at most that many sets are returned.
+	 */
+	public List<BitSet> findRightClosedSets(int limit) {
+		return findClosedSets(false, limit);
+	}
+
+	/*
+	 * The upper covers of a closed set are the minimal ones among the
+	 * closures of the set extended by a single element.
+	 */
+	private int[][] getUpperCovers(boolean left, List<BitSet> sets) {
+		Map<BitSet, Integer> index = new HashMap<BitSet, Integer>();
+		for (int i = 0; i < sets.size(); i++)
+			index.put(sets.get(i), i);
+
+		int[][] covers = new int[sets.size()][];
+		for (int k = 0; k < sets.size(); k++) {
+			BitSet set = sets.get(k);
+
+			Set<BitSet> candidates = new LinkedHashSet<BitSet>();
+			for (int i = 0; i < getSideSize(left); i++) {
+				if (set.get(i))
+					continue;
+
+				BitSet next = (BitSet) set.clone();
+				next.set(i);
+				candidates.add(closure(left, next));
+			}
+
+			List<Integer> list = new ArrayList<Integer>();
+			for (BitSet next : candidates) {
+				boolean minimal = true;
+				for (BitSet other : candidates) {
+					if (other == next)
+						continue;
+
+					BitSet b = (BitSet) other.clone();
+					b.andNot(next);
+					if (b.isEmpty()) {
+						minimal = false;
+						break;
+					}
+				}
+
+				Integer i = index.get(next);
+				if (minimal && i != null)
+					list.add(i);
+			}
+
+			covers[k] = new int[list.size()];
+			for (int i = 0; i < list.size(); i++)
+				covers[k][i] = list.get(i);
+		}
+
+		return covers;
+	}
+
+	/**
+	 * Returns for each closed set of left elements the indices of its upper
+	 * covers within the given list. Covers missing from the list (because of
+	 * a limit) are omitted.
+	 */
+	public int[][] getLeftUpperCovers(List<BitSet> sets) {
+		return getUpperCovers(true, sets);
+	}
+
+	/**
+	 * Returns for each closed set of right elements the indices of its upper
+	 * covers within the given list. Covers missing from the list (because of
+	 * a limit) are omitted.
+	 */
+	public int[][] getRightUpperCovers(List<BitSet> sets) {
+		return getUpperCovers(false, sets);
+	}
+
+	public static BitGaloisConn wrap(GaloisConn<Boolean> galois) {
+		BitGaloisConn conn = new BitGaloisConn();
+
+		int n = galois.getLeftSize();
+		int m = galois.getRightSize();
+		Tensor<Boolean> tensor = galois.getTensor();
+
+		for (int j = 0; j < m; j++)
+			conn.cols.add(new BitSet(n));
+
+		for (int i = 0; i < n; i++) {
+			BitSet row = new BitSet(m);
+			for (int j = 0; j < m; j++)
+				if (tensor.getElem(i, j))
+					row.set(j);
+			conn.addLeft(row);
+		}
+
+		return conn;
+	}
+
+	public GaloisConn<Boolean> getGaloisConn() {
+		Tensor<Boolean> tensor = Tensor.generate(rows.size(), cols.size(),
+				new Func2<Boolean, Integer, Integer>() {
+					@Override
+					public Boolean call(Integer elem1, Integer elem2) {
+						return rows.get(elem1).get(elem2);
+					}
+				});
+		return GaloisConn.wrap(tensor);
+	}
+
+	public static Relation<Boolean> asRelation(int size, BitSet set) {
+		assert set.length() <= size;
+
+		Tensor<Boolean> tensor = Tensor.constant(new int[] { size },
+				Boolean.FALSE);
+		for (int i = set.nextSetBit(0); i >= 0; i = set.nextSetBit(i + 1))
+			tensor.setElemAt(i, Boolean.TRUE);
+		return Relation.wrap(tensor);
+	}
+
+	public static BitSet asBitSet(Relation<Boolean> rel) {
+		assert rel.getArity() == 1;
+
+		BitSet set = new BitSet(rel.getSize());
+		Tensor<Boolean> tensor = rel.getTensor();
+		for (int i = 0; i < tensor.getElemCount(); i++)
+			if (tensor.getElemAt(i))
+				set.set(i);
+		return set;
+	}
+}
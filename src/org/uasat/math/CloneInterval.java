@@ -28,6 +28,7 @@ public class CloneInterval {
 	private final GeneratedOps interval;
 	private final List<Operation<Boolean>> operations;
 	private final List<Relation<Boolean>> relations;
+	private final BitGaloisConn bits;
 	private GaloisConn<Boolean> galois;
 	public boolean trace = false;
 
@@ -44,8 +45,7 @@ public class CloneInterval {
 
 		operations = new ArrayList<Operation<Boolean>>();
 		relations = new ArrayList<Relation<Boolean>>();
-		galois = GaloisConn.wrap(Tensor.constant(new int[] { 0, 0 },
-				Boolean.FALSE));
+		bits = new BitGaloisConn();
 	}
 
 	public CloneInterval(GeneratedOps interval) {
@@ -62,8 +62,7 @@ public class CloneInterval {
 
 		operations = new ArrayList<Operation<Boolean>>();
 		relations = new ArrayList<Relation<Boolean>>();
-		galois = GaloisConn.wrap(Tensor.constant(new int[] { 0, 0 },
-				Boolean.FALSE));
+		bits = new BitGaloisConn();
 	}
 
 	public int getSize() {
@@ -79,9 +78,15 @@ public class CloneInterval {
 	}
 
 	public GaloisConn<Boolean> getGaloisConn() {
+		if (galois == null)
+			galois = bits.getGaloisConn();
 		return galois;
 	}
 
+	public BitGaloisConn getBitGaloisConn() {
+		return bits;
+	}
+
 	public int getOperationCount() {
 		return operations.size();
 	}
@@ -94,42 +99,30 @@ public class CloneInterval {
 		return operations.size() + relations.size();
 	}
 
-	public void add(final Relation<Boolean> rel) {
+	public void add(Relation<Boolean> rel) {
 		assert rel.getSize() == size;
 
-		final Tensor<Boolean> t1 = galois.getTensor();
-		Tensor<Boolean> t2 = Tensor.generate(operations.size(),
-				relations.size() + 1, new Func2<Boolean, Integer, Integer>() {
-					@Override
-					public Boolean call(Integer elem1, Integer elem2) {
-						if (elem2 < relations.size())
-							return t1.getElem(elem1, elem2);
-						else
-							return operations.get(elem1).preserves(rel);
-					}
-				});
+		BitSet col = new BitSet(operations.size());
+		for (int i = 0; i < operations.size(); i++)
+			if (operations.get(i).preserves(rel))
+				col.set(i);
 
 		relations.add(rel);
-		galois = GaloisConn.wrap(t2);
+		bits.addRight(col);
+		galois = null;
 	}
 
-	public void add(final Operation<Boolean> op) {
+	public void add(Operation<Boolean> op) {
 		assert op.getSize() == size && op.isOperation();
 
-		final Tensor<Boolean> t1 = galois.getTensor();
-		Tensor<Boolean> t2 = Tensor.generate(operations.size() + 1,
-				relations.size(), new Func2<Boolean, Integer, Integer>() {
-					@Override
-					public Boolean call(Integer elem1, Integer elem2) {
-						if (elem1 < operations.size())
-							return t1.getElem(elem1, elem2);
-						else
-							return op.preserves(relations.get(elem2));
-					}
-				});
+		BitSet row = new BitSet(relations.size());
+		for (int i = 0; i < relations.size(); i++)
+			if (op.preserves(relations.get(i)))
+				row.set(i);
 
 		operations.add(op);
-		galois = GaloisConn.wrap(t2);
+		bits.addLeft(row);
+		galois = null;
 	}
 
 	public void addSingletons() {
@@ -139,6 +132,7 @@ public class CloneInterval {
 
 	public <BOOL> Relation<BOOL> preservedOps(final BoolAlgebra<BOOL> alg,
 			final Relation<BOOL> rel) {
+		alg.pushScope("preservedOps");
 		Tensor<BOOL> tensor = Tensor.generate(alg.getType(), operations.size(),
 				new Func1<BOOL, Integer>() {
 					@Override
@@ -148,11 +142,13 @@ public class CloneInterval {
 						return op.preserves(rel);
 					}
 				});
+		alg.popScope("preservedOps");
 		return new Relation<BOOL>(alg, tensor);
 	}
 
 	public <BOOL> Relation<BOOL> preservedRels(final BoolAlgebra<BOOL> alg,
 			final Operation<BOOL> op) {
+		alg.pushScope("preservedRels");
 		Tensor<BOOL> tensor = Tensor.generate(alg.getType(), relations.size(),
 				new Func1<BOOL, Integer>() {
 					@Override
@@ -162,6 +158,7 @@ public class CloneInterval {
 						return op.preserves(rel);
 					}
 				});
+		alg.popScope("preservedRels");
 		return new Relation<BOOL>(alg, tensor);
 	}
 
@@ -181,7 +178,7 @@ public class CloneInterval {
 					List<Tensor<BOOL>> tensors) {
 				Operation<BOOL> op = new Operation<BOOL>(alg, tensors.get(0));
 				Relation<BOOL> rel = new Relation<BOOL>(alg, tensors.get(1));
-				GaloisConn<BOOL> gal = GaloisConn.lift(alg, galois);
+				GaloisConn<BOOL> gal = GaloisConn.lift(alg, getGaloisConn());
 
 				BOOL b = op.isOperation();
 				b = alg.and(b, alg.not(op.preserves(rel)));
@@ -230,7 +227,7 @@ public class CloneInterval {
 					List<Tensor<BOOL>> tensors) {
 				Operation<BOOL> op = new Operation<BOOL>(alg, tensors.get(0));
 				Relation<BOOL> rel = new Relation<BOOL>(alg, tensors.get(1));
-				GaloisConn<BOOL> gal = GaloisConn.lift(alg, galois);
+				GaloisConn<BOOL> gal = GaloisConn.lift(alg, getGaloisConn());
 
 				BOOL b = op.isOperation();
 				b = alg.and(b, alg.not(op.preserves(rel)));
@@ -403,11 +400,17 @@ public class CloneInterval {
 	}
 
 	public List<Relation<Boolean>> getClosedOpSets(int limit) {
-		return GaloisConn.findLeftClosedSets(solver, galois, limit);
+		List<Relation<Boolean>> list = new ArrayList<Relation<Boolean>>();
+		for (BitSet set : bits.findLeftClosedSets(limit))
+			list.add(BitGaloisConn.asRelation(operations.size(), set));
+		return list;
 	}
 
 	public List<Relation<Boolean>> getClosedRelSets(int limit) {
-		return GaloisConn.findRightClosedSets(solver, galois, limit);
+		List<Relation<Boolean>> list = new ArrayList<Relation<Boolean>>();
+		for (BitSet set : bits.findRightClosedSets(limit))
+			list.add(BitGaloisConn.asRelation(relations.size(), set));
+		return list;
 	}
 
 	public void print() {
@@ -423,7 +426,7 @@ public class CloneInterval {
 		for (Relation<Boolean> rel : relations)
 			System.out.println((c++) + ":\t" + Relation.format(rel));
 
-		GaloisConn.print(galois);
+		GaloisConn.print(getGaloisConn());
 	}
 
 	public void printClosedOpSets(int limit) {
@@ -26,6 +26,7 @@ public class CompatibleOps {
 	private final Structure<Boolean> structure;
 	private final GeneratedOps stabilizer;
 	private final SatSolver<?> solver;
+	private List<Permutation<Boolean>> automorphisms = null;
 
 	public CompatibleOps(Structure<Boolean> structure) {
 		this(structure, null, SatSolver.getDefault());
@@ -50,6 +51,151 @@ public class CompatibleOps {
 		this.stabilizer = stabilizer;
 	}
 
+	/*
+	 * Compatible operations conjugate under an automorphism of the structure
+	 * share all the properties tested here, so it is enough to keep the lex
+	 * leaders. The stabilizer need not be invariant under conjugation.
+	 */
+	private <BOOL> BOOL isLexLeader(Operation<BOOL> op) {
+		if (stabilizer != null)
+			throw new IllegalArgumentException(
+					"lex-leader cannot be used with a stabilizer");
+
+		if (automorphisms == null)
+			automorphisms = Structure.automorphisms(structure).getGenerators();
+
+		return op.isLexLeader(new ArrayList<Permutation<Boolean>>(),
+				automorphisms);
+	}
+
+	/**
+	 * When set to a group of automorphisms of the structure, which must also
+	 * preserve the stabilizer, the unary, binary and ternary operations are
+	 * found up to conjugation by the group: one operation is returned from
+	 * each orbit and the whole orbit is blocked in the solver.
+	 */
+	public PermGroup symmetries = null;
+
+	/*
+	 * The problems of the unary, binary and ternary operations, where the
+	 * symmetries act on the decoded one-hot tables.
+	 */
+	private abstract class OpsProblem extends OrbitProblem {
+		public OpsProblem(int arity) {
+			super(getShape(arity), symmetries);
+		}
+
+		@Override
+		protected Tensor<Boolean> decode(Tensor<Boolean> tensor) {
+			return decodeOp(BoolAlgebra.INSTANCE, tensor).getTensor();
+		}
+
+		@Override
+		protected Tensor<Boolean> encode(Tensor<Boolean> tensor) {
+			return encodeOp(Operation.wrap(tensor));
+		}
+	}
+
+	/**
+	 * When set, the unary, binary and ternary operations are searched for with
+	 * binary encoded table cells (see LogOperation), which needs fewer
+	 * variables and no exactly-one constraints for larger domains.
+	 */
+	public boolean logEncoding = false;
+
+	/**
+	 * When set, the unary, binary and ternary operations are searched for in
+	 * order encoding over the chain 0 < 1 < ... (see LadderOperation). The
+	 * relations of the structure equal to this order are then encoded as
+	 * binary monotonicity clauses.
+	 */
+	public boolean ladderEncoding = false;
+
+	private int[] getShape(int arity) {
+		int size = structure.getSize();
+		if (logEncoding && ladderEncoding)
+			throw new IllegalStateException(
+					"the log and ladder encodings cannot be combined");
+		else if (logEncoding)
+			return LogOperation.getShape(size, arity);
+		else if (ladderEncoding)
+			return LadderOperation.getShape(size, arity);
+		else
+			return Util.createShape(size, arity + 1);
+	}
+
+	private <BOOL> Operation<BOOL> decodeOp(BoolAlgebra<BOOL> alg,
+			Tensor<BOOL> tensor) {
+		int size = structure.getSize();
+		if (logEncoding)
+			return new LogOperation<BOOL>(alg, size, tensor).getOperation();
+		else if (ladderEncoding)
+			return new LadderOperation<BOOL>(alg, size, tensor).getOperation();
+		else
+			return new Operation<BOOL>(alg, tensor);
+	}
+
+	private Tensor<Boolean> encodeOp(Operation<Boolean> op) {
+		if (logEncoding)
+			return LogOperation.encode(op).getTensor();
+		else if (ladderEncoding)
+			return LadderOperation.encode(op).getTensor();
+		else
+			return op.getTensor();
+	}
+
+	private List<Operation<Boolean>> decodeOps(Tensor<Boolean> sol) {
+		List<Operation<Boolean>> list = new ArrayList<Operation<Boolean>>();
+		for (Tensor<Boolean> t : Tensor.unstack(sol))
+			list.add(decodeOp(BoolAlgebra.INSTANCE, t));
+		return list;
+	}
+
+	/*
+	 * The decoded cells of the log and ladder encodings have at most one
+	 * value, so their validity replaces the exactly-one constraints. With the
+	 * ladder encoding the chain order of the structure needs no decoding.
+	 */
+	private <BOOL> BOOL isCompatible(BoolAlgebra<BOOL> alg,
+			Tensor<BOOL> tensor, Operation<BOOL> op) {
+		int size = structure.getSize();
+		LadderOperation<BOOL> ladder = null;
+
+		BOOL res;
+		if (logEncoding && LogOperation.isDense(size))
+			res = alg.TRUE;
+		else if (logEncoding)
+			res = Tensor.fold(alg.ALL, op.getArity(),
+					Tensor.fold(alg.ANY, 1, op.getTensor())).get();
+		else if (ladderEncoding) {
+			ladder = new LadderOperation<BOOL>(alg, size, tensor);
+			res = ladder.isValid();
+		} else
+			res = op.isOperation();
+
+		Relation<Boolean> chain = Relation.lessOrEqual(size);
+		for (Relation<Boolean> rel : structure.getRelations()) {
+			if (ladder != null && rel.getArity() == 2
+					&& Relation.COMPARATOR.compare(rel, chain) == 0)
+				res = alg.and(res, ladder.isMonotone());
+			else
+				res = alg.and(res, op.preserves(Relation.lift(alg, rel)));
+		}
+
+		return res;
+	}
+
+	/**
+	 * Returns the number of operations conjugate to each of the given ones
+	 * under the symmetries.
+	 */
+	public List<Integer> getOrbitSizes(List<Operation<Boolean>> ops) {
+		List<Tensor<Boolean>> tensors = new ArrayList<Tensor<Boolean>>();
+		for (Operation<Boolean> op : ops)
+			tensors.add(op.getTensor());
+		return OrbitProblem.getOrbitSizes(symmetries, tensors);
+	}
+
 	public Structure<Boolean> getStructure() {
 		return structure;
 	}
@@ -60,17 +206,21 @@ public class CompatibleOps {
 
 	public List<Operation<Boolean>> findUnaryOps(final String options,
 			int maxSolutions) {
-		int size = structure.getSize();
-		SatProblem prob = new SatProblem(new int[] { size, size }) {
+		if (stabilizer == null && symmetries == null
+				&& options.trim().equals("automorphism")) {
+			List<Operation<Boolean>> list = new ArrayList<Operation<Boolean>>();
+			for (Permutation<Boolean> perm : Structure.automorphisms(structure).getElements(maxSolutions))
+				list.add(perm.asOperation());
+			return list;
+		}
+
+		SatProblem prob = new OpsProblem(1) {
 			@Override
 			public <BOOL> BOOL compute(BoolAlgebra<BOOL> alg,
 					List<Tensor<BOOL>> tensors) {
 
-				Operation<BOOL> op = new Operation<BOOL>(alg, tensors.get(0));
-				Structure<BOOL> str = Structure.lift(alg, structure);
-
-				BOOL res = op.isOperation();
-				res = alg.and(res, str.isCompatibleWith(op));
+				Operation<BOOL> op = decodeOp(alg, tensors.get(0));
+				BOOL res = isCompatible(alg, tensors.get(0), op);
 
 				if (stabilizer != null)
 					res = alg.and(res, stabilizer.isClosedUnder(op));
@@ -82,6 +232,8 @@ public class CompatibleOps {
 						res = alg.and(res, alg.not(op.isSurjective()));
 					else if (token.equals("retraction"))
 						res = alg.and(res, op.isRetraction());
+					else if (token.equals("lex-leader"))
+						res = alg.and(res, isLexLeader(op));
 					else if (!token.isEmpty())
 						throw new IllegalArgumentException("invalid option: "
 								+ token);
@@ -93,22 +245,18 @@ public class CompatibleOps {
 
 		prob.verbose = false;
 		Tensor<Boolean> sol = prob.solveAll(solver, maxSolutions).get(0);
-		return Operation.wrap(Tensor.unstack(sol));
+		return decodeOps(sol);
 	}
 
 	public List<Operation<Boolean>> findBinaryOps(final String options,
 			int maxSolutions) {
-		int size = structure.getSize();
-		SatProblem prob = new SatProblem(new int[] { size, size, size }) {
+		SatProblem prob = new OpsProblem(2) {
 			@Override
 			public <BOOL> BOOL compute(BoolAlgebra<BOOL> alg,
 					List<Tensor<BOOL>> tensors) {
 
-				Operation<BOOL> op = new Operation<BOOL>(alg, tensors.get(0));
-				Structure<BOOL> str = Structure.lift(alg, structure);
-
-				BOOL res = op.isOperation();
-				res = alg.and(res, str.isCompatibleWith(op));
+				Operation<BOOL> op = decodeOp(alg, tensors.get(0));
+				BOOL res = isCompatible(alg, tensors.get(0), op);
 
 				if (stabilizer != null)
 					res = alg.and(res, stabilizer.isClosedUnder(op));
@@ -130,6 +278,8 @@ public class CompatibleOps {
 						res = alg.and(res, op.isTwoSemilattice());
 					else if (token.equals("unique"))
 						res = alg.and(res, op.isLexLeq(op.polymer(1, 0)));
+					else if (token.equals("lex-leader"))
+						res = alg.and(res, isLexLeader(op));
 					else if (!token.isEmpty())
 						throw new IllegalArgumentException("invalid option: "
 								+ token);
@@ -141,22 +291,18 @@ public class CompatibleOps {
 
 		prob.verbose = false;
 		Tensor<Boolean> sol = prob.solveAll(solver, maxSolutions).get(0);
-		return Operation.wrap(Tensor.unstack(sol));
+		return decodeOps(sol);
 	}
 
 	public List<Operation<Boolean>> findTernaryOps(final String options,
 			int maxSolutions) {
-		int size = structure.getSize();
-		SatProblem prob = new SatProblem(new int[] { size, size, size, size }) {
+		SatProblem prob = new OpsProblem(3) {
 			@Override
 			public <BOOL> BOOL compute(BoolAlgebra<BOOL> alg,
 					List<Tensor<BOOL>> tensors) {
 
-				Operation<BOOL> op = new Operation<BOOL>(alg, tensors.get(0));
-				Structure<BOOL> str = Structure.lift(alg, structure);
-
-				BOOL res = op.isOperation();
-				res = alg.and(res, str.isCompatibleWith(op));
+				Operation<BOOL> op = decodeOp(alg, tensors.get(0));
+				BOOL res = isCompatible(alg, tensors.get(0), op);
 
 				if (stabilizer != null)
 					res = alg.and(res, stabilizer.isClosedUnder(op));
@@ -176,6 +322,8 @@ public class CompatibleOps {
 						res = alg.and(res, op.isMaltsev());
 					else if (token.equals("weak-nu"))
 						res = alg.and(res, op.isWeakNearUnanimity());
+					else if (token.equals("lex-leader"))
+						res = alg.and(res, isLexLeader(op));
 					else if (token.equals("unique")) {
 						res = alg.and(res, op.isLexLeq(op.polymer(0, 1, 2)));
 						res = alg.and(res, op.isLexLeq(op.polymer(1, 0, 2)));
@@ -193,7 +341,7 @@ public class CompatibleOps {
 
 		prob.verbose = false;
 		Tensor<Boolean> sol = prob.solveAll(solver, maxSolutions).get(0);
-		return Operation.wrap(Tensor.unstack(sol));
+		return decodeOps(sol);
 	}
 
 	public List<Operation<Boolean>> findSiggersTerms() {
@@ -37,6 +37,24 @@ public class CompatibleRels {
 		this.solver = solver;
 	}
 
+	/**
+	 * When set to a group of automorphisms of the algebra, then findAllRels
+	 * and findEquivalences return one relation from each orbit of the group
+	 * acting on the universe, and block the whole orbit in the solver.
+	 */
+	public PermGroup symmetries = null;
+
+	/**
+	 * Returns the number of relations in the orbit of each of the given ones
+	 * under the symmetries.
+	 */
+	public List<Integer> getOrbitSizes(List<Relation<Boolean>> rels) {
+		List<Tensor<Boolean>> tensors = new ArrayList<Tensor<Boolean>>();
+		for (Relation<Boolean> rel : rels)
+			tensors.add(rel.getTensor());
+		return OrbitProblem.getOrbitSizes(symmetries, tensors);
+	}
+
 	public Algebra<Boolean> getAlgebra() {
 		return algebra;
 	}
@@ -46,8 +64,8 @@ public class CompatibleRels {
 	}
 
 	public List<Relation<Boolean>> findAllRels(int arity, int limit) {
-		SatProblem problem = new SatProblem(Util.createShape(algebra.getSize(),
-				arity)) {
+		SatProblem problem = new OrbitProblem(Util.createShape(
+				algebra.getSize(), arity), symmetries) {
 			@Override
 			public <BOOL> BOOL compute(BoolAlgebra<BOOL> alg,
 					List<Tensor<BOOL>> tensors) {
@@ -68,8 +86,8 @@ public class CompatibleRels {
 	}
 
 	public List<Relation<Boolean>> findEquivalences(int limit) {
-		SatProblem problem = new SatProblem(Util.createShape(algebra.getSize(),
-				2)) {
+		SatProblem problem = new OrbitProblem(Util.createShape(
+				algebra.getSize(), 2), symmetries) {
 			@Override
 			public <BOOL> BOOL compute(BoolAlgebra<BOOL> alg,
 					List<Tensor<BOOL>> tensors) {
@@ -132,6 +150,13 @@ public class CompatibleRels {
 			final Relation<Boolean> below,
 			final List<Relation<Boolean>> notabove,
 			final List<Relation<Boolean>> notbelow) {
+		return findOneRel(above, below, notabove, notbelow, null);
+	}
+
+	private Relation<Boolean> findOneRel(final Relation<Boolean> above,
+			final Relation<Boolean> below,
+			final List<Relation<Boolean>> notabove,
+			final List<Relation<Boolean>> notbelow, Relation<Boolean> hint) {
 		final int arity = (above != null ? above : below).getArity();
 
 		assert above == null || above.getSize() == algebra.getSize();
@@ -182,6 +207,9 @@ public class CompatibleRels {
 			}
 		};
 
+		if (hint != null)
+			problem.hints = Collections.singletonList(hint.getTensor());
+
 		List<Tensor<Boolean>> sol = problem.solveOne(solver);
 		if (sol == null)
 			return null;
@@ -199,7 +227,7 @@ public class CompatibleRels {
 				break;
 
 			for (;;) {
-				Relation<Boolean> r = findOneRel(rel, below, null, list);
+				Relation<Boolean> r = findOneRel(rel, below, null, list, rel);
 				if (r == null)
 					break;
 				else
@@ -225,7 +253,7 @@ public class CompatibleRels {
 				break;
 
 			for (;;) {
-				Relation<Boolean> r = findOneRel(above, rel, list, null);
+				Relation<Boolean> r = findOneRel(above, rel, list, null, rel);
 				if (r == null)
 					break;
 				else
@@ -87,6 +87,9 @@ public class CriticalRelsGen {
 			addGenerator(rel);
 	}
 
+	// the last solution, used as a phase hint when climbing
+	private Tensor<Boolean> lastFull = null;
+
 	private Relation<Boolean> findOne(final Relation<Boolean> above) {
 		assert above == null || (above.getSize() == size && above.getArity() == arity1);
 
@@ -107,11 +110,15 @@ public class CriticalRelsGen {
 			}
 		};
 
+		if (above != null && lastFull != null)
+			problem.hints = Collections.singletonList(lastFull);
+
 		totalSteps += 1;
 		List<Tensor<Boolean>> sol = problem.solveOne(solver);
 		if (sol == null)
 			return null;
 
+		lastFull = sol.get(0);
 		Relation<Boolean> full = Relation.wrap(sol.get(0));
 		return full.projectTail(arity1);
 	}
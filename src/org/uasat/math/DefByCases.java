@@ -19,6 +19,7 @@
 package org.uasat.math;
 
 import java.util.*;
+import java.util.concurrent.*;
 
 import org.uasat.core.*;
 
@@ -31,8 +32,6 @@ public class DefByCases {
 
 		this.size = size;
 		cases = new ArrayList<Case>();
-
-		digraph_mask = Tensor.constant(new int[] { size, size }, Boolean.FALSE);
 	}
 
 	public int getSize() {
@@ -46,6 +45,15 @@ public class DefByCases {
 	private abstract class Case {
 		public abstract boolean matches(int[] tuple);
 
+		/*
+		 * The buffer has size * size entries, all false, which must be false
+		 * again on return. Cases that need scratch space use it instead of
+		 * allocating their own.
+		 */
+		public boolean matches(int[] tuple, boolean[] buffer) {
+			return matches(tuple);
+		}
+
 		@Override
 		public abstract String toString();
 	}
@@ -58,6 +66,96 @@ public class DefByCases {
 		throw new IllegalArgumentException("tuple not matched");
 	}
 
+	/**
+	 * If set, then the case index tables are computed on the common fork/join
+	 * pool, split into blocks of tuples.
+	 */
+	public boolean parallel = false;
+
+	// the case index tables by arity, valid for the first indexedCases cases
+	private final List<int[]> caseIndices = new ArrayList<int[]>();
+	private int indexedCases = 0;
+
+	/*
+	 * Fills in the case indices of the tuples at the given positions, or -1
+	 * for unmatched tuples.
+	 */
+	private void fillCaseIndices(int[] table, int arity, int start, int end) {
+		int[] tuple = new int[arity];
+		boolean[] buffer = new boolean[size * size];
+		for (int p = start; p < end; p++) {
+			int q = p;
+			for (int i = 0; i < arity; i++) {
+				tuple[i] = q % size;
+				q /= size;
+			}
+
+			int c = 0;
+			while (c < cases.size() && !cases.get(c).matches(tuple, buffer))
+				c++;
+
+			table[p] = c < cases.size() ? c : -1;
+		}
+	}
+
+	/**
+	 * Returns the index of the first matching case for each tuple of the given
+	 * arity, in the order of tensor elements (the first coordinate changes the
+	 * fastest), or -1 for unmatched tuples. The table is computed once and
+	 * cached until a new case is added, and it must not be modified.
+	 */
+	public synchronized int[] getCaseIndices(final int arity) {
+		assert arity >= 1;
+
+		if (indexedCases != cases.size()) {
+			caseIndices.clear();
+			indexedCases = cases.size();
+		}
+
+		while (caseIndices.size() <= arity)
+			caseIndices.add(null);
+
+		if (caseIndices.get(arity) != null)
+			return caseIndices.get(arity);
+
+		final int[] table = new int[Util.getShapeSize(Util.createShape(size,
+				arity))];
+
+		if (!parallel)
+			fillCaseIndices(table, arity, 0, table.length);
+		else {
+			int block = Math.max(1024, table.length
+					/ (4 * ForkJoinPool.getCommonPoolParallelism()));
+
+			List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+			for (int start = 0; start < table.length; start += block) {
+				final int s = start;
+				final int e = Math.min(start + block, table.length);
+				tasks.add(new Callable<Void>() {
+					@Override
+					public Void call() {
+						fillCaseIndices(table, arity, s, e);
+						return null;
+					}
+				});
+			}
+
+			try {
+				for (Future<Void> future : ForkJoinPool.commonPool().invokeAll(
+						tasks))
+					future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			} catch (ExecutionException e) {
+				throw new RuntimeException(e.getCause());
+			}
+		}
+
+		caseIndices.set(arity, table);
+		return table;
+	}
+
 	public void printCases() {
 		System.out.println("definition by cases: " + cases.size());
 		for (int i = 0; i < cases.size(); i++)
@@ -286,24 +384,49 @@ public class DefByCases {
 			addFirstProj(elem);
 	}
 
-	private Tensor<Boolean> digraph_mask;
-
 	public void addDigraph(final Relation<Boolean> graph) {
 		assert graph.getArity() == 2 && graph.getSize() == size;
 		assert graph.project(0).equals(graph.project(1));
 		assert Relation.isStronglyConnected(graph);
 
+		final boolean[] edges = new boolean[size * size];
+		int count = 0;
+		for (int i = 0; i < edges.length; i++)
+			if (edges[i] = graph.getTensor().getElemAt(i))
+				count++;
+		final int edgeCount = count;
+
 		cases.add(new Case() {
 			@Override
 			public boolean matches(int[] tuple) {
-				digraph_mask.fillElems(Boolean.FALSE);
+				return matches(tuple, new boolean[size * size]);
+			}
+
+			@Override
+			public boolean matches(int[] tuple, boolean[] mask) {
+				// the edges of the cycle must cover the graph
+				int covered = 0;
 
-				digraph_mask.setElem(Boolean.TRUE, tuple[tuple.length - 1],
-						tuple[0]);
-				for (int i = 1; i < tuple.length; i++)
-					digraph_mask.setElem(Boolean.TRUE, tuple[i - 1], tuple[i]);
+				int last = tuple[tuple.length - 1];
+				for (int i = 0; i < tuple.length && covered >= 0; i++) {
+					int p = last + size * tuple[i];
+					if (!edges[p])
+						covered = -1;
+					else if (!mask[p]) {
+						mask[p] = true;
+						covered++;
+					}
+					last = tuple[i];
+				}
 
-				return graph.getTensor().equals(digraph_mask);
+				// clear the marked edges for the next tuple
+				last = tuple[tuple.length - 1];
+				for (int i = 0; i < tuple.length; i++) {
+					mask[last + size * tuple[i]] = false;
+					last = tuple[i];
+				}
+
+				return covered == edgeCount;
 			}
 
 			@Override
@@ -314,7 +437,7 @@ public class DefByCases {
 	}
 
 	public void addAllDigarphs() {
-		SatProblem prob = new SatProblem(digraph_mask.getShape()) {
+		SatProblem prob = new SatProblem(new int[] { size, size }) {
 			@Override
 			public <BOOL> BOOL compute(BoolAlgebra<BOOL> alg,
 					List<Tensor<BOOL>> tensors) {
@@ -344,13 +467,16 @@ public class DefByCases {
 			final int arity) {
 		assert input.getArity() == 1 && input.getSize() == cases.size();
 
-		Tensor<BOOL> tensor = Tensor.generate(input.getTensor().getType(),
-				Util.createShape(size, arity), new Func1<BOOL, int[]>() {
-					@Override
-					public BOOL call(int[] elem) {
-						return input.getValue(getCaseIndex(elem));
-					}
-				});
+		int[] table = getCaseIndices(arity);
+		Tensor<BOOL> values = input.getTensor();
+		Tensor<BOOL> tensor = Tensor.constant(values.getType(),
+				Util.createShape(size, arity), input.getAlg().FALSE);
+
+		for (int p = 0; p < table.length; p++) {
+			if (table[p] < 0)
+				throw new IllegalArgumentException("tuple not matched");
+			tensor.setElemAt(p, values.getElemAt(table[p]));
+		}
 
 		return new Relation<BOOL>(input.getAlg(), tensor);
 	}
@@ -359,16 +485,16 @@ public class DefByCases {
 			final int arity) {
 		assert input.getDomain() == cases.size() && input.getCodomain() == size;
 
-		final int[] tuple = new int[arity];
+		int[] table = getCaseIndices(arity);
+		Tensor<BOOL> tensor = Tensor.constant(input.getTensor().getType(),
+				Util.createShape(size, arity + 1), input.getAlg().FALSE);
 
-		Tensor<BOOL> tensor = Tensor.generate(input.getTensor().getType(),
-				Util.createShape(size, arity + 1), new Func1<BOOL, int[]>() {
-					@Override
-					public BOOL call(int[] elem) {
-						System.arraycopy(elem, 1, tuple, 0, arity);
-						return input.hasValue(elem[0], getCaseIndex(tuple));
-					}
-				});
+		for (int p = 0; p < table.length; p++) {
+			if (table[p] < 0)
+				throw new IllegalArgumentException("tuple not matched");
+			for (int v = 0; v < size; v++)
+				tensor.setElemAt(v + size * p, input.hasValue(v, table[p]));
+		}
 
 		return new Operation<BOOL>(input.getAlg(), tensor);
 	}
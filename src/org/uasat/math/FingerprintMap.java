@@ -0,0 +1,279 @@
+/**
+ * Copyright (C) Miklos Maroti, 2018
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation; either version 2 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package org.uasat.math;
+
+import java.util.*;
+
+import org.uasat.core.*;
+
+/**
+ * An open addressing hash map with linear probing for concrete relations and
+ * (partial) operations as keys. The cached 64-bit fingerprints of the keys
+ * are stored next to them, so a lookup usually compares a single word and
+ * calls equals only for the matching key.
+ */
+public final class FingerprintMap<KEY, VALUE> {
+	private long[] hashes;
+	private Object[] keys;
+	private Object[] values;
+	private int count = 0;
+
+	public FingerprintMap() {
+		this(16);
+	}
+
+	public FingerprintMap(int capacity) {
+		int length = 16;
+		while (length < 2 * capacity)
+			length *= 2;
+
+		hashes = new long[length];
+		keys = new Object[length];
+		values = new Object[length];
+	}
+
+	/*
+	 * Hashes the shape and the elements packed into 64-bit words.
+	 */
+	static long fingerprint(Tensor<Boolean> tensor) {
+		long h = 0xcbf29ce484222325L;
+		for (int i = 0; i < tensor.getOrder(); i++)
+			h = (h ^ tensor.getDim(i)) * 0x100000001b3L;
+
+		int count = tensor.getElemCount();
+		for (int i = 0; i < count; i += 64) {
+			long w = 0;
+			int n = Math.min(64, count - i);
+			for (int j = 0; j < n; j++)
+				if (tensor.getElemAt(i + j))
+					w |= 1L << j;
+
+			h = (h ^ w) * 0x100000001b3L;
+			h ^= h >>> 29;
+		}
+
+		return h;
+	}
+
+	/*
+	 * Returns true if the object is a concrete relation or (partial)
+	 * operation, the only kinds of supported keys.
+	 */
+	static boolean isKey(Object key) {
+		if (key instanceof Relation)
+			return ((Relation<?>) key).getAlg() == BoolAlgebra.INSTANCE;
+		else if (key instanceof PartialOperation)
+			return ((PartialOperation<?>) key).getAlg() == BoolAlgebra.INSTANCE;
+		else
+			return false;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static long fingerprint(Object key) {
+		if (key instanceof Relation)
+			return ((Relation<Boolean>) key).getFingerprint();
+		else if (key instanceof PartialOperation)
+			return ((PartialOperation<Boolean>) key).getFingerprint();
+		else
+			throw new IllegalArgumentException("unsupported key: " + key);
+	}
+
+	private int slot(long hash) {
+		return (int) (hash ^ (hash >>> 32)) & (keys.length - 1);
+	}
+
+	/*
+	 * Returns the slot of the key, or the empty slot where it should go.
+	 */
+	private int find(Object key, long hash) {
+		int mask = keys.length - 1;
+		int i = slot(hash);
+		while (keys[i] != null) {
+			if (hashes[i] == hash && keys[i].equals(key))
+				return i;
+			i = (i + 1) & mask;
+		}
+		return i;
+	}
+
+	private void grow() {
+		long[] oldHashes = hashes;
+		Object[] oldKeys = keys;
+		Object[] oldValues = values;
+
+		hashes = new long[2 * oldKeys.length];
+		keys = new Object[2 * oldKeys.length];
+		values = new Object[2 * oldKeys.length];
+
+		int mask = keys.length - 1;
+		for (int j = 0; j < oldKeys.length; j++)
+			if (oldKeys[j] != null) {
+				int i = slot(oldHashes[j]);
+				while (keys[i] != null)
+					i = (i + 1) & mask;
+
+				hashes[i] = oldHashes[j];
+				keys[i] = oldKeys[j];
+				values[i] = oldValues[j];
+			}
+	}
+
+	public int size() {
+		return count;
+	}
+
+	public boolean containsKey(KEY key) {
+		return keys[find(key, fingerprint(key))] != null;
+	}
+
+	@SuppressWarnings("unchecked")
+	public VALUE get(KEY key) {
+		return (VALUE) values[find(key, fingerprint(key))];
+	}
+
+	/**
+	 * Associates the value with the key and returns the previous value, or
+	 * null if the key was not present.
+	 */
+	@SuppressWarnings("unchecked")
+	public VALUE put(KEY key, VALUE value) {
+		assert key != null;
+
+		long hash = fingerprint(key);
+		int i = find(key, hash);
+		if (keys[i] != null) {
+			VALUE old = (VALUE) values[i];
+			values[i] = value;
+			return old;
+		}
+
+		hashes[i] = hash;
+		keys[i] = key;
+		values[i] = value;
+
+		if (++count * 2 > keys.length)
+			grow();
+
+		return null;
+	}
+
+	/**
+	 * Removes the key and returns its value, or null if it was not present.
+	 * The following keys of the probe sequence are shifted back, so no
+	 * deleted markers are needed.
+	 */
+	@SuppressWarnings("unchecked")
+	public VALUE remove(KEY key) {
+		int i = find(key, fingerprint(key));
+		if (keys[i] == null)
+			return null;
+
+		VALUE old = (VALUE) values[i];
+		removeAt(i);
+		return old;
+	}
+
+	/*
+	 * Empties the given occupied slot and moves back the following keys of
+	 * its probe sequence that would not be found otherwise.
+	 */
+	private void removeAt(int i) {
+		count -= 1;
+
+		int mask = keys.length - 1;
+		for (int j = (i + 1) & mask; keys[j] != null; j = (j + 1) & mask) {
+			int k = slot(hashes[j]);
+			if (((j - k) & mask) >= ((j - i) & mask)) {
+				hashes[i] = hashes[j];
+				keys[i] = keys[j];
+				values[i] = values[j];
+				i = j;
+			}
+		}
+
+		keys[i] = null;
+		values[i] = null;
+	}
+
+	public void clear() {
+		Arrays.fill(keys, null);
+		Arrays.fill(values, null);
+		count = 0;
+	}
+
+	/**
+	 * Returns the keys in the order of the hash table. The iterator supports
+	 * removal, but the map must not be modified otherwise while it is used.
+	 */
+	public Iterator<KEY> keyIterator() {
+		return new Iterator<KEY>() {
+			/*
+			 * The slots are visited starting after an empty one, which stays
+			 * empty, so removals never move keys across the start and the
+			 * keys shifted back by removeAt are not yet visited.
+			 */
+			private final int start = findEmpty();
+			private int offset = advance(0);
+			private int last = -1;
+
+			private int findEmpty() {
+				int i = 0;
+				while (keys[i] != null)
+					i++;
+				return i;
+			}
+
+			private int advance(int k) {
+				int mask = keys.length - 1;
+				while (k < keys.length && keys[(start + 1 + k) & mask] == null)
+					k++;
+				return k;
+			}
+
+			@Override
+			public boolean hasNext() {
+				return offset < keys.length;
+			}
+
+			@SuppressWarnings("unchecked")
+			@Override
+			public KEY next() {
+				if (offset >= keys.length)
+					throw new NoSuchElementException();
+
+				last = offset;
+				KEY key = (KEY) keys[(start + 1 + offset) & (keys.length - 1)];
+				offset = advance(offset + 1);
+				return key;
+			}
+
+			@Override
+			public void remove() {
+				if (last < 0)
+					throw new IllegalStateException();
+
+				int i = (start + 1 + last) & (keys.length - 1);
+				removeAt(i);
+				if (keys[i] != null)
+					offset = last;
+				last = -1;
+			}
+		};
+	}
+}
@@ -0,0 +1,73 @@
+/**
+ * Copyright (C) Miklos Maroti, 2018
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation; either version 2 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package org.uasat.math;
+
+import java.util.*;
+
+/**
+ * A hash set of concrete relations or (partial) operations backed by a
+ * FingerprintMap, for membership tests that do not compare whole tensors.
+ * It does not keep any order, use a TreeSet with the comparator of the
+ * elements for that.
+ */
+public final class FingerprintSet<ELEM> extends AbstractSet<ELEM> {
+	private final FingerprintMap<ELEM, Boolean> map;
+
+	public FingerprintSet() {
+		map = new FingerprintMap<ELEM, Boolean>();
+	}
+
+	public FingerprintSet(Iterable<ELEM> elems) {
+		this();
+		for (ELEM elem : elems)
+			add(elem);
+	}
+
+	@Override
+	public int size() {
+		return map.size();
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public boolean contains(Object elem) {
+		return FingerprintMap.isKey(elem) && map.containsKey((ELEM) elem);
+	}
+
+	@Override
+	public boolean add(ELEM elem) {
+		return map.put(elem, Boolean.TRUE) == null;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public boolean remove(Object elem) {
+		return FingerprintMap.isKey(elem) && map.remove((ELEM) elem) != null;
+	}
+
+	@Override
+	public void clear() {
+		map.clear();
+	}
+
+	@Override
+	public Iterator<ELEM> iterator() {
+		return map.keyIterator();
+	}
+}
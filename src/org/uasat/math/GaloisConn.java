@@ -101,29 +101,45 @@ public final class GaloisConn<BOOL> {
 	public Relation<BOOL> leftClosure(Relation<BOOL> right) {
 		assert right.getArity() == 1 && right.getSize() == tensor.getDim(1);
 
-		return new Relation<BOOL>(alg, leftClosure(right.getTensor()));
+		alg.pushScope("leftClosure");
+		Tensor<BOOL> t = leftClosure(right.getTensor());
+		alg.popScope("leftClosure");
+
+		return new Relation<BOOL>(alg, t);
 	}
 
 	public Relation<BOOL> rightClosure(Relation<BOOL> left) {
 		assert left.getArity() == 1 && left.getSize() == tensor.getDim(0);
 
-		return new Relation<BOOL>(alg, rightClosure(left.getTensor()));
+		alg.pushScope("rightClosure");
+		Tensor<BOOL> t = rightClosure(left.getTensor());
+		alg.popScope("rightClosure");
+
+		return new Relation<BOOL>(alg, t);
 	}
 
 	public BOOL isLeftClosed(Relation<BOOL> left) {
 		assert left.getArity() == 1 && left.getSize() == tensor.getDim(0);
 
+		alg.pushScope("isLeftClosed");
 		Tensor<BOOL> t = leftClosure(rightClosure(left.getTensor()));
 		t = Tensor.map2(alg.EQU, t, left.getTensor());
-		return Tensor.fold(alg.ALL, 1, t).get();
+		BOOL b = Tensor.fold(alg.ALL, 1, t).get();
+		alg.popScope("isLeftClosed");
+
+		return b;
 	}
 
 	public BOOL isRightClosed(Relation<BOOL> right) {
 		assert right.getArity() == 1 && right.getSize() == tensor.getDim(1);
 
+		alg.pushScope("isRightClosed");
 		Tensor<BOOL> t = rightClosure(leftClosure(right.getTensor()));
 		t = Tensor.map2(alg.EQU, t, right.getTensor());
-		return Tensor.fold(alg.ALL, 1, t).get();
+		BOOL b = Tensor.fold(alg.ALL, 1, t).get();
+		alg.popScope("isRightClosed");
+
+		return b;
 	}
 
 	public static List<Relation<Boolean>> findLeftClosedSets(
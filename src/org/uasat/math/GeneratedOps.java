@@ -19,6 +19,7 @@
 package org.uasat.math;
 
 import java.util.*;
+import java.util.concurrent.*;
 
 import org.uasat.core.*;
 
@@ -28,6 +29,17 @@ public class GeneratedOps implements Iterable<Operation<Boolean>> {
 	private final TreeSet<Operation<Boolean>> operations;
 	private final SatSolver<?> solver;
 
+	// the same operations in the order they were found
+	private final List<OperationTable> tables;
+	private final Set<OperationTable> tableSet;
+
+	/**
+	 * If set, then the compositions are computed on the common fork/join
+	 * pool. The found operations are the same as with the sequential closure,
+	 * and the result does not depend on the scheduling of the threads.
+	 */
+	public boolean parallel = false;
+
 	public GeneratedOps(int size, int arity) {
 		this(size, arity, SatSolver.getDefault());
 	}
@@ -39,6 +51,8 @@ public class GeneratedOps implements Iterable<Operation<Boolean>> {
 		this.arity = arity;
 		this.operations = new TreeSet<Operation<Boolean>>(Operation.COMPARATOR);
 		this.solver = solver;
+		this.tables = new ArrayList<OperationTable>();
+		this.tableSet = new HashSet<OperationTable>();
 	}
 
 	public SatSolver<?> getSolver() {
@@ -63,11 +77,17 @@ public class GeneratedOps implements Iterable<Operation<Boolean>> {
 
 	public void clear() {
 		operations.clear();
+		tables.clear();
+		tableSet.clear();
 	}
 
 	public void add(Operation<Boolean> op) {
 		assert op.getArity() == arity && op.getSize() == size;
-		operations.add(op);
+		if (operations.add(op)) {
+			OperationTable table = OperationTable.decode(op);
+			tables.add(table);
+			tableSet.add(table);
+		}
 	}
 
 	public void addAll(Iterable<Operation<Boolean>> ops) {
@@ -77,104 +97,172 @@ public class GeneratedOps implements Iterable<Operation<Boolean>> {
 
 	public void addProjections() {
 		for (int i = 0; i < arity; i++)
-			operations.add(Operation.projection(size, arity, i));
+			add(Operation.projection(size, arity, i));
 	}
 
-	public void addCompositions() {
-		for (;;) {
-			int a = operations.size();
+	private void add(OperationTable table) {
+		if (tableSet.add(table)) {
+			tables.add(table);
+			operations.add(table.encode());
+		}
+	}
 
-			List<Operation<Boolean>> ops = new ArrayList<Operation<Boolean>>(
-					operations);
+	/*
+	 * Applies the operation to all tuples of found operations whose largest
+	 * index is at least start, including the ones found meanwhile. When it
+	 * returns, the set is closed under the operation provided that it was
+	 * already closed for the tuples of the first start operations.
+	 */
+	private void close(OperationTable op, int start) {
+		if (parallel) {
+			closeParallel(op, start);
+			return;
+		}
 
-			@SuppressWarnings("unchecked")
-			Operation<Boolean>[] args = new Operation[arity];
+		OperationTable[] args = new OperationTable[op.getArity()];
 
-			for (int radius = 0; radius < ops.size(); radius++) {
-				Iterator<int[]> iter = Util.hullIterator(radius, arity + 1);
-				while (iter.hasNext()) {
-					int[] index = iter.next();
+		for (int radius = start; radius < tables.size(); radius++) {
+			Iterator<int[]> iter = Util.hullIterator(radius, args.length);
+			while (iter.hasNext()) {
+				int[] index = iter.next();
 
-					Operation<Boolean> op = ops.get(index[0]);
-					for (int i = 0; i < args.length; i++)
-						args[i] = ops.get(index[i + 1]);
+				for (int i = 0; i < args.length; i++)
+					args[i] = tables.get(index[i]);
 
-					op = op.compose(args);
-					if (operations.add(op))
-						ops.add(op);
-				}
+				add(op.compose(args));
 			}
-
-			if (a == operations.size())
-				break;
 		}
 	}
 
-	public void addCompositions(Operation<Boolean> op) {
-		assert op.getSize() == size;
+	/*
+	 * Computes the compositions of a single layer of the hull iterator, the
+	 * operation is null for the compositions of the found operations.
+	 */
+	private List<OperationTable> compose(OperationTable op, int radius) {
+		List<OperationTable> found = new ArrayList<OperationTable>();
+		Set<OperationTable> seen = new HashSet<OperationTable>();
 
-		for (;;) {
-			int a = operations.size();
+		int length = op != null ? op.getArity() : arity + 1;
+		OperationTable[] args = new OperationTable[op != null ? length
+				: length - 1];
 
-			List<Operation<Boolean>> ops = new ArrayList<Operation<Boolean>>(
-					operations);
+		Iterator<int[]> iter = Util.hullIterator(radius, length);
+		while (iter.hasNext()) {
+			int[] index = iter.next();
 
-			@SuppressWarnings("unchecked")
-			Operation<Boolean>[] args = new Operation[op.getArity()];
+			OperationTable f = op;
+			if (f == null) {
+				f = tables.get(index[0]);
+				for (int i = 0; i < args.length; i++)
+					args[i] = tables.get(index[i + 1]);
+			} else {
+				for (int i = 0; i < args.length; i++)
+					args[i] = tables.get(index[i]);
+			}
+
+			OperationTable g = f.compose(args);
+			if (!tableSet.contains(g) && seen.add(g))
+				found.add(g);
+		}
 
-			for (int radius = 0; radius < ops.size(); radius++) {
-				Iterator<int[]> iter = Util.hullIterator(radius, op.getArity());
-				while (iter.hasNext()) {
-					int[] index = iter.next();
+		return found;
+	}
 
-					for (int i = 0; i < args.length; i++)
-						args[i] = ops.get(index[i]);
+	/*
+	 * Processes the layers of the hull iterator level by level. The layers of
+	 * a level only read the operations found in earlier levels, so they can
+	 * run in parallel, and their results are merged in layer order.
+	 */
+	private void closeParallel(final OperationTable op, int start) {
+		int end = tables.size();
+		while (start < end) {
+			List<Callable<List<OperationTable>>> tasks = new ArrayList<Callable<List<OperationTable>>>();
+			for (int radius = start; radius < end; radius++) {
+				final int r = radius;
+				tasks.add(new Callable<List<OperationTable>>() {
+					@Override
+					public List<OperationTable> call() {
+						return compose(op, r);
+					}
+				});
+			}
 
-					Operation<Boolean> op2 = op.compose(args);
-					if (operations.add(op2))
-						ops.add(op2);
-				}
+			try {
+				for (Future<List<OperationTable>> future : ForkJoinPool
+						.commonPool().invokeAll(tasks))
+					for (OperationTable table : future.get())
+						add(table);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			} catch (ExecutionException e) {
+				throw new RuntimeException(e.getCause());
 			}
 
-			if (a == operations.size())
-				break;
+			start = end;
+			end = tables.size();
+		}
+	}
+
+	public void addCompositions() {
+		if (parallel) {
+			closeParallel(null, 0);
+			return;
+		}
+
+		OperationTable[] args = new OperationTable[arity];
+
+		for (int radius = 0; radius < tables.size(); radius++) {
+			Iterator<int[]> iter = Util.hullIterator(radius, arity + 1);
+			while (iter.hasNext()) {
+				int[] index = iter.next();
+
+				OperationTable op = tables.get(index[0]);
+				for (int i = 0; i < args.length; i++)
+					args[i] = tables.get(index[i + 1]);
+
+				add(op.compose(args));
+			}
 		}
 	}
 
+	public void addCompositions(Operation<Boolean> op) {
+		assert op.getSize() == size;
+		close(OperationTable.decode(op), 0);
+	}
+
 	public void addCompositions(Algebra<Boolean> alg) {
 		assert alg.getSize() == size;
-		List<Operation<Boolean>> ops = alg.getOperations();
-
-		int n = 0;
-		while (n < ops.size()) {
-			int a = operations.size();
-			for (Operation<Boolean> op : ops) {
-				addCompositions(op);
-				if (a == operations.size())
-					n += 1;
-				else
-					n = 1;
+		List<OperationTable> ops = OperationTable.decode(alg.getOperations());
+
+		// the number of operations each of the basic operations was closed for
+		int[] done = new int[ops.size()];
+
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (int i = 0; i < ops.size(); i++) {
+				if (done[i] < tables.size()) {
+					close(ops.get(i), done[i]);
+					done[i] = tables.size();
+					changed = true;
+				}
 			}
 		}
 	}
 
 	public boolean isSelfClosed() {
-		List<Operation<Boolean>> ops = new ArrayList<Operation<Boolean>>(
-				operations);
-
-		@SuppressWarnings("unchecked")
-		Operation<Boolean>[] args = new Operation[arity];
+		OperationTable[] args = new OperationTable[arity];
 
-		Iterator<int[]> iter = Util.cubeIterator(operations.size(), arity + 1);
+		Iterator<int[]> iter = Util.cubeIterator(tables.size(), arity + 1);
 		while (iter.hasNext()) {
 			int[] index = iter.next();
 
-			Operation<Boolean> op = ops.get(index[0]);
+			OperationTable op = tables.get(index[0]);
 			for (int i = 0; i < args.length; i++)
-				args[i] = ops.get(index[i + 1]);
+				args[i] = tables.get(index[i + 1]);
 
-			op = op.compose(args);
-			if (!operations.contains(op))
+			if (!tableSet.contains(op.compose(args)))
 				return false;
 		}
 
@@ -184,6 +272,7 @@ public class GeneratedOps implements Iterable<Operation<Boolean>> {
 	public <BOOL> BOOL isClosedUnder(Operation<BOOL> op) {
 		assert op.getSize() == size;
 		BoolAlgebra<BOOL> alg = op.getAlg();
+		alg.pushScope("isClosedUnder");
 
 		List<Operation<BOOL>> ops = Operation.lift(alg, operations);
 
@@ -208,11 +297,13 @@ public class GeneratedOps implements Iterable<Operation<Boolean>> {
 			b = alg.and(b, c);
 		}
 
+		alg.popScope("isClosedUnder");
 		return b;
 	}
 
 	public <BOOL> BOOL isCompatibleWith(Relation<BOOL> rel) {
 		BoolAlgebra<BOOL> alg = rel.getAlg();
+		alg.pushScope("isCompatibleWith");
 		BOOL b = alg.TRUE;
 
 		for (Operation<Boolean> op : operations) {
@@ -220,6 +311,7 @@ public class GeneratedOps implements Iterable<Operation<Boolean>> {
 			b = alg.and(b, o.preserves(rel));
 		}
 
+		alg.popScope("isCompatibleWith");
 		return b;
 	}
 
@@ -231,6 +323,15 @@ public class GeneratedOps implements Iterable<Operation<Boolean>> {
 			if (op.isProjection())
 				operations.remove(op);
 		}
+
+		Iterator<OperationTable> iter = tables.iterator();
+		while (iter.hasNext()) {
+			OperationTable table = iter.next();
+			if (table.isProjection()) {
+				iter.remove();
+				tableSet.remove(table);
+			}
+		}
 	}
 
 	public void print() {
@@ -246,6 +347,6 @@ public class GeneratedOps implements Iterable<Operation<Boolean>> {
 
 	@Override
 	public Iterator<Operation<Boolean>> iterator() {
-		return operations.iterator();
+		return Collections.unmodifiableSet(operations).iterator();
 	}
 }
@@ -26,6 +26,9 @@ public class GeneratedRels implements Iterable<Relation<Boolean>> {
 	private final int size;
 	private final int arity;
 	private final TreeSet<Relation<Boolean>> relations;
+
+	// the same relations for fast membership tests
+	private final FingerprintSet<Relation<Boolean>> relationSet;
 	private final SatSolver<?> solver;
 
 	public GeneratedRels(int size, int arity) {
@@ -38,6 +41,7 @@ public class GeneratedRels implements Iterable<Relation<Boolean>> {
 		this.size = size;
 		this.arity = arity;
 		this.relations = new TreeSet<Relation<Boolean>>(Relation.COMPARATOR);
+		this.relationSet = new FingerprintSet<Relation<Boolean>>();
 		this.solver = solver;
 	}
 
@@ -63,11 +67,20 @@ public class GeneratedRels implements Iterable<Relation<Boolean>> {
 
 	public void clear() {
 		relations.clear();
+		relationSet.clear();
+	}
+
+	private boolean insert(Relation<Boolean> rel) {
+		if (!relationSet.add(rel))
+			return false;
+
+		relations.add(rel);
+		return true;
 	}
 
 	public void add(Relation<Boolean> rel) {
 		assert rel.getArity() == arity && rel.getSize() == size;
-		relations.add(rel);
+		insert(rel);
 	}
 
 	public void add(Iterable<Relation<Boolean>> rels) {
@@ -76,13 +89,13 @@ public class GeneratedRels implements Iterable<Relation<Boolean>> {
 	}
 
 	public void addFull() {
-		relations.add(Relation.full(size, arity));
+		insert(Relation.full(size, arity));
 	}
 
 	public void addSingletons() {
 		assert arity == 1;
 		for (int i = 0; i < size; i++)
-			relations.add(Relation.singleton(size, i));
+			insert(Relation.singleton(size, i));
 	}
 
 	public void addIntersections() {
@@ -98,7 +111,7 @@ public class GeneratedRels implements Iterable<Relation<Boolean>> {
 					Relation<Boolean> r2 = rels.get(j);
 
 					Relation<Boolean> r3 = r1.intersect(r2);
-					if (relations.add(r3))
+					if (insert(r3))
 						rels.add(r3);
 				}
 			}
@@ -112,7 +125,7 @@ public class GeneratedRels implements Iterable<Relation<Boolean>> {
 		for (Relation<Boolean> r1 : relations)
 			for (Relation<Boolean> r2 : relations) {
 				Relation<Boolean> r3 = r1.intersect(r2);
-				if (!relations.contains(r3))
+				if (!relationSet.contains(r3))
 					return false;
 			}
 		return true;
@@ -124,7 +137,7 @@ public class GeneratedRels implements Iterable<Relation<Boolean>> {
 		List<Relation<Boolean>> rels = new ArrayList<Relation<Boolean>>(
 				relations);
 		for (Relation<Boolean> rel : rels)
-			relations.add(rel.rotate(1));
+			insert(rel.rotate(1));
 	}
 
 	public void addCompositions() {
@@ -142,14 +155,14 @@ public class GeneratedRels implements Iterable<Relation<Boolean>> {
 					Relation<Boolean> r2 = rels.get(j);
 
 					Relation<Boolean> r3 = r1.compose(r2);
-					if (relations.add(r3))
+					if (insert(r3))
 						rels.add(r3);
 
 					if (i == j)
 						continue;
 
 					r3 = r2.compose(r1);
-					if (relations.add(r3))
+					if (insert(r3))
 						rels.add(r3);
 				}
 			}
@@ -202,7 +215,7 @@ public class GeneratedRels implements Iterable<Relation<Boolean>> {
 
 				int a = relations.size();
 				for (Tensor<Boolean> t : Tensor.unstack(tensor))
-					relations.add(Relation.wrap(t));
+					insert(Relation.wrap(t));
 
 				assert a + tensor.getLastDim() == relations.size();
 			}
@@ -273,7 +286,7 @@ public class GeneratedRels implements Iterable<Relation<Boolean>> {
 					Relation<Boolean> r = Relation.wrap(t);
 					assert r.project(0).isMemberOf(subalgs);
 					assert r.project(1).isMemberOf(subalgs);
-					relations.add(r);
+					insert(r);
 				}
 				assert a + tensor.getLastDim() == relations.size();
 			}
@@ -281,13 +294,16 @@ public class GeneratedRels implements Iterable<Relation<Boolean>> {
 	}
 
 	public void removeEmpty() {
-		relations.remove(Relation.empty(size, arity));
+		Relation<Boolean> empty = Relation.empty(size, arity);
+		relations.remove(empty);
+		relationSet.remove(empty);
 	}
 
 	public void removeMeetReducibles() {
 		List<Relation<Boolean>> rels = new ArrayList<Relation<Boolean>>(
 				relations);
 		relations.clear();
+		relationSet.clear();
 
 		while (!rels.isEmpty()) {
 			Relation<Boolean> rel = rels.remove(rels.size() - 1);
@@ -304,7 +320,7 @@ public class GeneratedRels implements Iterable<Relation<Boolean>> {
 			}
 
 			if (!m.isEqualTo(rel))
-				relations.add(rel);
+				insert(rel);
 		}
 	}
 
@@ -0,0 +1,207 @@
+/**
+ * Copyright (C) Miklos Maroti, 2018
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation; either version 2 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package org.uasat.math;
+
+import java.util.*;
+
+import org.uasat.core.*;
+
+/**
+ * An operation on the chain 0 < 1 < ... < size-1 stored in order encoding:
+ * the variable at coordinates [c,x1,...,xn] is true if the value of the
+ * arguments x1,...,xn is at most c, for c < size-1. The validity of the
+ * encoding and the monotonicity of the operation are implications between
+ * pairs of these variables. The one-hot operation is decoded once on demand.
+ */
+public final class LadderOperation<BOOL> {
+	private final BoolAlgebra<BOOL> alg;
+	private final Tensor<BOOL> tensor;
+	private final int size;
+	private Operation<BOOL> operation = null;
+
+	public BoolAlgebra<BOOL> getAlg() {
+		return alg;
+	}
+
+	public Tensor<BOOL> getTensor() {
+		return tensor;
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	public int getArity() {
+		return tensor.getOrder() - 1;
+	}
+
+	public static int[] getShape(int size, int arity) {
+		assert size >= 2;
+
+		int[] shape = Util.createShape(size, arity + 1);
+		shape[0] = size - 1;
+		return shape;
+	}
+
+	public LadderOperation(BoolAlgebra<BOOL> alg, int size, Tensor<BOOL> tensor) {
+		assert alg != null && size >= 2 && tensor.getOrder() >= 1;
+		assert tensor.getDim(0) == size - 1;
+		for (int i = 1; i < tensor.getOrder(); i++)
+			assert tensor.getDim(i) == size;
+
+		this.alg = alg;
+		this.size = size;
+		this.tensor = tensor;
+	}
+
+	public static LadderOperation<Boolean> wrap(int size, Tensor<Boolean> tensor) {
+		return new LadderOperation<Boolean>(BoolAlgebra.INSTANCE, size, tensor);
+	}
+
+	public static <BOOL> LadderOperation<BOOL> lift(BoolAlgebra<BOOL> alg,
+			LadderOperation<Boolean> op) {
+		return new LadderOperation<BOOL>(alg, op.size, alg.lift(op.tensor));
+	}
+
+	/*
+	 * Collects the pairs of variables of the same cell where the lower one
+	 * must imply the upper one for the encoding to be valid.
+	 */
+	private void getValidPairs(List<BOOL> lower, List<BOOL> upper) {
+		int width = size - 1;
+		for (int i = 0; i < tensor.getElemCount(); i++)
+			if (i % width != width - 1) {
+				lower.add(tensor.getElemAt(i));
+				upper.add(tensor.getElemAt(i + 1));
+			}
+	}
+
+	/*
+	 * Collects the pairs of variables of neighboring cells where the lower
+	 * one must imply the upper one for the operation to be monotone. It is
+	 * enough to compare the neighboring cells, one pair for each bit.
+	 */
+	private void getMonotonePairs(List<BOOL> lower, List<BOOL> upper) {
+		int width = size - 1;
+		int cells = tensor.getElemCount() / width;
+
+		int step = 1;
+		for (int i = 0; i < getArity(); i++) {
+			for (int c = 0; c < cells; c++) {
+				if ((c / step) % size == size - 1)
+					continue;
+
+				for (int j = 0; j < width; j++) {
+					lower.add(tensor.getElemAt((c + step) * width + j));
+					upper.add(tensor.getElemAt(c * width + j));
+				}
+			}
+			step *= size;
+		}
+	}
+
+	private BOOL implications(List<BOOL> lower, List<BOOL> upper) {
+		assert lower.size() == upper.size();
+
+		BOOL b = alg.TRUE;
+		for (int i = 0; i < lower.size(); i++)
+			b = alg.and(b, alg.leq(lower.get(i), upper.get(i)));
+		return b;
+	}
+
+	/**
+	 * Returns true if the variables of each cell form a ladder, that is the
+	 * value is at most c+1 whenever it is at most c.
+	 */
+	public BOOL isValid() {
+		List<BOOL> lower = new ArrayList<BOOL>();
+		List<BOOL> upper = new ArrayList<BOOL>();
+		getValidPairs(lower, upper);
+		return implications(lower, upper);
+	}
+
+	/**
+	 * Returns true if the operation is monotone in each argument with respect
+	 * to the chain order, assuming that the encoding is valid.
+	 */
+	public BOOL isMonotone() {
+		List<BOOL> lower = new ArrayList<BOOL>();
+		List<BOOL> upper = new ArrayList<BOOL>();
+		getMonotonePairs(lower, upper);
+		return implications(lower, upper);
+	}
+
+	/**
+	 * Returns the decoded one-hot operation, which is only a valid operation if
+	 * isValid holds.
+	 */
+	public Operation<BOOL> getOperation() {
+		if (operation != null)
+			return operation;
+
+		int width = size - 1;
+		int cells = tensor.getElemCount() / width;
+
+		int[] shape = tensor.getShape().clone();
+		shape[0] = size;
+		Tensor<BOOL> decoded = Tensor.constant(alg.getType(), shape, alg.FALSE);
+
+		for (int c = 0; c < cells; c++) {
+			BOOL below = alg.FALSE;
+			for (int v = 0; v < size; v++) {
+				BOOL leq = v < width ? tensor.getElemAt(c * width + v)
+						: alg.TRUE;
+				decoded.setElemAt(c * size + v, alg.and(leq, alg.not(below)));
+				below = leq;
+			}
+		}
+
+		operation = new Operation<BOOL>(alg, decoded);
+		return operation;
+	}
+
+	public BOOL preserves(Relation<BOOL> rel) {
+		return getOperation().preserves(rel);
+	}
+
+	public BOOL isIdempotent() {
+		return getOperation().isIdempotent();
+	}
+
+	public Operation<BOOL> compose(Operation<BOOL>[] ops) {
+		return getOperation().compose(ops);
+	}
+
+	public static LadderOperation<Boolean> encode(Operation<Boolean> op) {
+		final Tensor<Integer> values = PartialOperation.decode(op);
+		int size = op.getSize();
+
+		Tensor<Boolean> tensor = Tensor.generate(getShape(size, op.getArity()),
+				new Func1<Boolean, int[]>() {
+					@Override
+					public Boolean call(int[] elem) {
+						int v = values.getElem(Arrays.copyOfRange(elem, 1,
+								elem.length));
+						return v <= elem[0];
+					}
+				});
+
+		return wrap(size, tensor);
+	}
+}
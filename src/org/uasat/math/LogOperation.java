@@ -0,0 +1,195 @@
+/**
+ * Copyright (C) Miklos Maroti, 2018
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation; either version 2 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package org.uasat.math;
+
+import java.util.*;
+
+import org.uasat.core.*;
+
+/**
+ * An operation whose table cells are stored in binary, using getWidth(size)
+ * bits each, instead of the one-hot encoding of Operation. The bits of the
+ * value of the arguments x1,...,xn are at coordinates [b,x1,...,xn], so a
+ * ternary operation on 8 elements needs 3*512 variables instead of 8*512.
+ * The one-hot operation is decoded once on demand, where the minterms of
+ * each cell share their common prefixes.
+ */
+public final class LogOperation<BOOL> {
+	private final BoolAlgebra<BOOL> alg;
+	private final Tensor<BOOL> tensor;
+	private final int size;
+	private Tensor<BOOL> decoded = null;
+	private Operation<BOOL> operation = null;
+
+	public BoolAlgebra<BOOL> getAlg() {
+		return alg;
+	}
+
+	public Tensor<BOOL> getTensor() {
+		return tensor;
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	public int getArity() {
+		return tensor.getOrder() - 1;
+	}
+
+	/**
+	 * Returns the number of bits used to encode an element, which is at least
+	 * one.
+	 */
+	public static int getWidth(int size) {
+		assert size >= 1;
+
+		int width = 1;
+		while ((1 << width) < size)
+			width++;
+		return width;
+	}
+
+	/**
+	 * Returns true if every code of getWidth(size) bits encodes an element,
+	 * that is, when the size is a power of two greater than one.
+	 */
+	public static boolean isDense(int size) {
+		return (1 << getWidth(size)) == size;
+	}
+
+	public static int[] getShape(int size, int arity) {
+		int[] shape = Util.createShape(size, arity + 1);
+		shape[0] = getWidth(size);
+		return shape;
+	}
+
+	public LogOperation(BoolAlgebra<BOOL> alg, int size, Tensor<BOOL> tensor) {
+		assert alg != null && tensor.getOrder() >= 1;
+		assert tensor.getDim(0) == getWidth(size);
+		for (int i = 1; i < tensor.getOrder(); i++)
+			assert tensor.getDim(i) == size;
+
+		this.alg = alg;
+		this.size = size;
+		this.tensor = tensor;
+	}
+
+	public static LogOperation<Boolean> wrap(int size, Tensor<Boolean> tensor) {
+		return new LogOperation<Boolean>(BoolAlgebra.INSTANCE, size, tensor);
+	}
+
+	public static <BOOL> LogOperation<BOOL> lift(BoolAlgebra<BOOL> alg,
+			LogOperation<Boolean> op) {
+		return new LogOperation<BOOL>(alg, op.size, alg.lift(op.tensor));
+	}
+
+	/*
+	 * Builds the minterms of each cell bit by bit, the terms of the first j
+	 * bits are extended by the next bit, and only the values below size are
+	 * kept at the last bit.
+	 */
+	private Tensor<BOOL> getDecoded() {
+		if (decoded != null)
+			return decoded;
+
+		int width = tensor.getDim(0);
+		int cells = tensor.getElemCount() / width;
+
+		int[] shape = tensor.getShape().clone();
+		shape[0] = size;
+		decoded = Tensor.constant(alg.getType(), shape, alg.FALSE);
+
+		@SuppressWarnings("unchecked")
+		BOOL[] terms = (BOOL[]) new Object[1 << width];
+
+		for (int c = 0; c < cells; c++) {
+			terms[0] = alg.TRUE;
+			for (int j = 0; j < width; j++) {
+				BOOL bit = tensor.getElemAt(c * width + j);
+				BOOL neg = alg.not(bit);
+
+				int count = 1 << j;
+				int limit = j == width - 1 ? size : 2 * count;
+				for (int v = count - 1; v >= 0; v--) {
+					BOOL t = terms[v];
+					if (v + count < limit)
+						terms[v + count] = alg.and(t, bit);
+					terms[v] = alg.and(t, neg);
+				}
+			}
+
+			for (int v = 0; v < size; v++)
+				decoded.setElemAt(c * size + v, terms[v]);
+		}
+
+		return decoded;
+	}
+
+	/**
+	 * Returns true if every cell encodes an element of the domain, which is
+	 * always the case when the size is a power of two.
+	 */
+	public BOOL isValid() {
+		if (isDense(size))
+			return alg.TRUE;
+
+		return Tensor.fold(alg.ALL, getArity(),
+				Tensor.fold(alg.ANY, 1, getDecoded())).get();
+	}
+
+	/**
+	 * Returns the decoded one-hot operation, which is only a valid operation if
+	 * isValid holds.
+	 */
+	public Operation<BOOL> getOperation() {
+		if (operation == null)
+			operation = new Operation<BOOL>(alg, getDecoded());
+		return operation;
+	}
+
+	public BOOL preserves(Relation<BOOL> rel) {
+		return getOperation().preserves(rel);
+	}
+
+	public BOOL isIdempotent() {
+		return getOperation().isIdempotent();
+	}
+
+	public Operation<BOOL> compose(Operation<BOOL>[] ops) {
+		return getOperation().compose(ops);
+	}
+
+	public static LogOperation<Boolean> encode(Operation<Boolean> op) {
+		final Tensor<Integer> values = PartialOperation.decode(op);
+		int size = op.getSize();
+
+		Tensor<Boolean> tensor = Tensor.generate(getShape(size, op.getArity()),
+				new Func1<Boolean, int[]>() {
+					@Override
+					public Boolean call(int[] elem) {
+						int v = values.getElem(Arrays.copyOfRange(elem, 1,
+								elem.length));
+						return ((v >> elem[0]) & 1) != 0;
+					}
+				});
+
+		return wrap(size, tensor);
+	}
+}
@@ -29,6 +29,9 @@ public class MeetClosedRels {
 
 	private final List<Relation<Boolean>> gens;
 	private final List<Relation<Boolean>> covs;
+	private final Set<Relation<Boolean>> orbits;
+
+	private final List<BitSet> ups;
 
 	private PartialOrder<Boolean> poset;
 	private int[] posetLinearized;
@@ -43,6 +46,8 @@ public class MeetClosedRels {
 		perms = Permutation.symmetricGroup(arity);
 		gens = new ArrayList<Relation<Boolean>>();
 		covs = new ArrayList<Relation<Boolean>>();
+		orbits = new FingerprintSet<Relation<Boolean>>();
+		ups = new ArrayList<BitSet>();
 
 		poset = PartialOrder.chain(0);
 		posetLinearized = null;
@@ -57,51 +62,85 @@ public class MeetClosedRels {
 		return arity;
 	}
 
-	public void addGenerator(final Relation<Boolean> rel) {
+	public void addGenerator(Relation<Boolean> rel) {
 		assert rel.getSize() == size && rel.getArity() == arity;
 
-		if (gens.contains(rel))
-			return;
-
-		Relation<Boolean> cov = Relation.full(size, arity);
+		BitSet below = new BitSet();
+		BitSet above = new BitSet();
 		for (int i = 0; i < gens.size(); i++) {
 			Relation<Boolean> gen = gens.get(i);
 			if (gen.isSubsetOf(rel)) {
-				assert !rel.isSubsetOf(gen);
-				covs.set(i, covs.get(i).intersect(rel));
+				if (gen.equals(rel))
+					return;
+				below.set(i);
 			} else if (rel.isSubsetOf(gen))
-				cov = cov.intersect(gen);
+				above.set(i);
+		}
+
+		Relation<Boolean> cov = Relation.full(size, arity);
+		for (int i = above.nextSetBit(0); i >= 0; i = above.nextSetBit(i + 1))
+			cov = cov.intersect(gens.get(i));
+
+		int last = gens.size();
+		for (int i = below.nextSetBit(0); i >= 0; i = below.nextSetBit(i + 1)) {
+			covs.set(i, covs.get(i).intersect(rel));
+			ups.get(i).set(last);
 		}
+		above.set(last);
 
 		gens.add(rel);
 		covs.add(cov);
+		ups.add(above);
 
-		final int last = gens.size() - 1;
-		Tensor<Boolean> poset2 = Tensor.generate(gens.size(), gens.size(), new Func2<Boolean, Integer, Integer>() {
-			@Override
-			public Boolean call(Integer elem1, Integer elem2) {
-				if (elem2 == last)
-					return gens.get(elem1).isSubsetOf(rel);
-				else if (elem1 == last)
-					return rel.isSubsetOf(gens.get(elem2));
-				else
-					return poset.getValue(elem1, elem2);
-			}
-		});
-
-		poset = PartialOrder.wrap(poset2);
+		poset = null;
 		posetLinearized = null;
 		posetCovers = null;
 	}
 
+	/*
+	 * The containment order of the generators is kept as bitsets of the
+	 * generators containing each one, the tensor is created only when it is
+	 * needed.
+	 */
+	private PartialOrder<Boolean> getPoset() {
+		if (poset == null)
+			poset = PartialOrder.wrap(Tensor.generate(gens.size(), gens.size(), new Func2<Boolean, Integer, Integer>() {
+				@Override
+				public Boolean call(Integer elem1, Integer elem2) {
+					return ups.get(elem1).get(elem2);
+				}
+			}));
+
+		return poset;
+	}
+
+	private static BitSet select(BitSet set, int[] map) {
+		BitSet result = new BitSet(map.length);
+		for (int i = 0; i < map.length; i++)
+			if (set.get(map[i]))
+				result.set(i);
+		return result;
+	}
+
 	public void addPermutedGen(Relation<Boolean> rel) {
 		assert rel.getSize() == size && rel.getArity() <= arity;
 
 		if (rel.getArity() < arity)
 			rel = rel.cartesian(Relation.full(size, arity - rel.getArity()));
 
-		for (Permutation<Boolean> p : perms)
-			addGenerator(rel.permute(p));
+		if (!orbits.add(Relation.canonicalize(rel)))
+			return;
+
+		int count = perms.size() / Relation.stabilizer(rel).size();
+		Set<Relation<Boolean>> images = new FingerprintSet<Relation<Boolean>>();
+		for (Permutation<Boolean> p : perms) {
+			Relation<Boolean> r = rel.permute(p);
+			if (images.add(r))
+				addGenerator(r);
+
+			if (images.size() == count)
+				break;
+		}
 	}
 
 	public void addPermutedGens(Iterable<Relation<Boolean>> rels) {
@@ -112,6 +151,8 @@ public class MeetClosedRels {
 	public void addAllRelations() {
 		gens.clear();
 		covs.clear();
+		orbits.clear();
+		ups.clear();
 
 		Relation<Boolean> full = Relation.full(size, arity);
 		Iterator<int[]> iter = Util.cubeIterator(size, arity);
@@ -121,6 +162,10 @@ public class MeetClosedRels {
 			Relation<Boolean> rel = Relation.singleton(size, pos);
 			gens.add(rel);
 			covs.add(full);
+
+			BitSet set = new BitSet();
+			set.set(ups.size());
+			ups.add(set);
 		}
 
 		poset = PartialOrder.antiChain(gens.size());
@@ -141,7 +186,7 @@ public class MeetClosedRels {
 		}
 
 		if (gens.size() != mask.length) {
-			final int[] m = new int[gens.size()];
+			int[] m = new int[gens.size()];
 
 			int j = 0;
 			for (int i = 0; i < mask.length; i++)
@@ -149,14 +194,15 @@ public class MeetClosedRels {
 					m[j++] = i;
 			assert j == gens.size();
 
-			Tensor<Boolean> poset2 = Tensor.generate(gens.size(), gens.size(), new Func2<Boolean, Integer, Integer>() {
-				@Override
-				public Boolean call(Integer elem1, Integer elem2) {
-					return poset.getValue(m[elem1], m[elem2]);
-				}
-			});
+			List<BitSet> ups2 = new ArrayList<BitSet>();
+			for (int i = 0; i < m.length; i++)
+				ups2.add(select(ups.get(m[i]), m));
+
+			ups.clear();
+			ups.addAll(ups2);
+			orbits.clear();
 
-			poset = PartialOrder.wrap(poset2);
+			poset = null;
 			posetLinearized = null;
 			posetCovers = null;
 		}
@@ -166,10 +212,10 @@ public class MeetClosedRels {
 		assert rel.getSize() == size && rel.getArity() == arity;
 
 		if (posetLinearized == null)
-			posetLinearized = PartialOrder.linearize(poset);
+			posetLinearized = PartialOrder.linearize(getPoset());
 
 		if (posetCovers == null)
-			posetCovers = PartialOrder.covers(poset);
+			posetCovers = PartialOrder.covers(getPoset());
 
 		BoolAlgebra<BOOL> alg = rel.getAlg();
 		Tensor<BOOL> tensor = Tensor.constant(alg.getType(), new int[] { gens.size() }, rel.getAlg().FALSE);
@@ -199,7 +245,7 @@ public class MeetClosedRels {
 		assert mask.getSize() == gens.size() && mask.getArity() == 1;
 
 		if (posetCovers == null)
-			posetCovers = PartialOrder.covers(poset);
+			posetCovers = PartialOrder.covers(getPoset());
 
 		BoolAlgebra<BOOL> alg = mask.getAlg();
 
@@ -327,7 +373,7 @@ public class MeetClosedRels {
 	}
 
 	public PartialOrder<Boolean> getComparability() {
-		return poset;
+		return getPoset();
 	}
 
 	public int getGeneratorCount() {
@@ -0,0 +1,186 @@
+/**
+ * Copyright (C) Miklos Maroti, 2018
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation; either version 2 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package org.uasat.math;
+
+import java.util.*;
+
+import org.uasat.core.*;
+
+/**
+ * A concrete operation stored as its table of values. The value of the
+ * arguments x1,...,xn is at position x1 + size * x2 + ... + size^(n-1) * xn,
+ * the same order as the tensor returned by PartialOperation.decode.
+ */
+public final class OperationTable {
+	private final int size;
+	private final int arity;
+	private final int[] table;
+	private final long fingerprint;
+
+	public int getSize() {
+		return size;
+	}
+
+	public int getArity() {
+		return arity;
+	}
+
+	private OperationTable(int size, int arity, int[] table) {
+		assert size >= 1 && arity >= 0;
+		assert table.length == Util.getShapeSize(Util.createShape(size, arity));
+
+		this.size = size;
+		this.arity = arity;
+		this.table = table;
+
+		long h = 0xcbf29ce484222325L;
+		for (int v : table)
+			h = (h ^ v) * 0x100000001b3L;
+		this.fingerprint = h ^ (h >>> 29);
+	}
+
+	public static OperationTable decode(Operation<Boolean> op) {
+		Tensor<Integer> tensor = PartialOperation.decode(op);
+
+		int[] table = new int[tensor.getElemCount()];
+		for (int i = 0; i < table.length; i++)
+			table[i] = tensor.getElemAt(i);
+
+		return new OperationTable(op.getSize(), op.getArity(), table);
+	}
+
+	public static List<OperationTable> decode(Iterable<Operation<Boolean>> ops) {
+		List<OperationTable> list = new ArrayList<OperationTable>();
+		for (Operation<Boolean> op : ops)
+			list.add(decode(op));
+		return list;
+	}
+
+	public Operation<Boolean> encode() {
+		Tensor<Integer> tensor = Tensor.constant(Integer.TYPE, Util.createShape(size, arity), 0);
+		for (int i = 0; i < table.length; i++)
+			tensor.setElemAt(i, table[i]);
+
+		return Operation.wrap(PartialOperation.encode(size, tensor).getTensor());
+	}
+
+	public static OperationTable projection(int size, int arity, int coord) {
+		assert 0 <= coord && coord < arity;
+
+		int[] table = new int[Util.getShapeSize(Util.createShape(size, arity))];
+
+		int step = 1;
+		for (int i = 0; i < coord; i++)
+			step *= size;
+
+		for (int i = 0; i < table.length; i++)
+			table[i] = (i / step) % size;
+
+		return new OperationTable(size, arity, table);
+	}
+
+	public int getValue(int... args) {
+		assert args.length == arity;
+
+		int pos = 0;
+		for (int i = arity - 1; i >= 0; i--) {
+			assert 0 <= args[i] && args[i] < size;
+			pos = pos * size + args[i];
+		}
+
+		return table[pos];
+	}
+
+	/**
+	 * Returns the operation f(g1(x1,...,xm),...,gn(x1,...,xm)) where f is this
+	 * operation of arity n and the gi are the given operations of arity m.
+	 */
+	public OperationTable compose(OperationTable... ops) {
+		assert ops.length == arity && arity >= 1;
+
+		int m = ops[0].arity;
+		for (OperationTable op : ops)
+			assert op.size == size && op.arity == m;
+
+		int[] result = new int[ops[0].table.length];
+		for (int i = 0; i < result.length; i++) {
+			int pos = 0;
+			for (int j = arity - 1; j >= 0; j--)
+				pos = pos * size + ops[j].table[i];
+
+			result[i] = table[pos];
+		}
+
+		return new OperationTable(size, m, result);
+	}
+
+	public boolean isProjection() {
+		for (int i = 0; i < arity; i++) {
+			int step = 1;
+			for (int j = 0; j < i; j++)
+				step *= size;
+
+			int k = 0;
+			while (k < table.length && table[k] == (k / step) % size)
+				k++;
+
+			if (k >= table.length)
+				return true;
+		}
+
+		return false;
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		OperationTable op = (OperationTable) other;
+		assert size == op.size && arity == op.arity;
+
+		return fingerprint == op.fingerprint && Arrays.equals(table, op.table);
+	}
+
+	/**
+	 * A 64-bit hash of the value table, different tables rarely collide.
+	 */
+	public long getFingerprint() {
+		return fingerprint;
+	}
+
+	@Override
+	public int hashCode() {
+		return (int) (fingerprint ^ (fingerprint >>> 32));
+	}
+
+	/**
+	 * The lexicographic order of the tables, which agrees with
+	 * Operation.COMPARATOR on the encoded operations.
+	 */
+	public static final Comparator<OperationTable> COMPARATOR = new Comparator<OperationTable>() {
+		@Override
+		public int compare(OperationTable o1, OperationTable o2) {
+			assert o1.size == o2.size && o1.arity == o2.arity;
+
+			for (int i = 0; i < o1.table.length; i++)
+				if (o1.table[i] != o2.table[i])
+					return o1.table[i] < o2.table[i] ? -1 : 1;
+
+			return 0;
+		}
+	};
+}
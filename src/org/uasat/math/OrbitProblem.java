@@ -0,0 +1,83 @@
+/**
+ * Copyright (C) Miklos Maroti, 2018
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation; either version 2 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package org.uasat.math;
+
+import java.util.*;
+
+import org.uasat.core.*;
+
+
+/**
+ * A problem with a single tensor whose solutions are found up to a group
+ * of symmetries acting on all coordinates of the tensor (as in
+ * Relation.conjugate): one solution is reported from each orbit and the
+ * whole orbit is blocked in the solver. Subclasses using a different
+ * encoding of the tensor convert it with decode and encode.
+ */
+abstract class OrbitProblem extends SatProblem {
+	private final PermGroup symmetries;
+
+	/**
+	 * Creates a problem with the given shape, the symmetries can be null.
+	 */
+	public OrbitProblem(int[] shape, PermGroup symmetries) {
+		super(shape);
+		this.symmetries = symmetries;
+	}
+
+	/**
+	 * Returns the tensor on which the symmetries act, by default the
+	 * solution itself.
+	 */
+	protected Tensor<Boolean> decode(Tensor<Boolean> tensor) {
+		return tensor;
+	}
+
+	/**
+	 * The inverse of decode.
+	 */
+	protected Tensor<Boolean> encode(Tensor<Boolean> tensor) {
+		return tensor;
+	}
+
+	@Override
+	protected List<List<Tensor<Boolean>>> getOrbit(
+			List<Tensor<Boolean>> solution) {
+		if (symmetries == null)
+			return super.getOrbit(solution);
+
+		List<List<Tensor<Boolean>>> list = new ArrayList<List<Tensor<Boolean>>>();
+		for (Tensor<Boolean> t : symmetries.getOrbit(decode(solution.get(0))))
+			list.add(Collections.singletonList(encode(t)));
+		return list;
+	}
+
+	/**
+	 * Returns the orbit sizes of the given tensors, all one if the group is
+	 * null.
+	 */
+	public static List<Integer> getOrbitSizes(PermGroup symmetries,
+			List<Tensor<Boolean>> tensors) {
+		List<Integer> sizes = new ArrayList<Integer>();
+		for (Tensor<Boolean> tensor : tensors)
+			sizes.add(symmetries == null ? 1 : symmetries.getOrbit(tensor)
+					.size());
+		return sizes;
+	}
+}
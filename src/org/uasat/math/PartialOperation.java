@@ -25,6 +25,7 @@ import org.uasat.core.*;
 public class PartialOperation<BOOL> {
 	protected final BoolAlgebra<BOOL> alg;
 	protected final Tensor<BOOL> tensor;
+	private volatile long fingerprint = 0;
 
 	public BoolAlgebra<BOOL> getAlg() {
 		return alg;
@@ -124,12 +125,47 @@ public class PartialOperation<BOOL> {
 	}
 
 	public BOOL isPermuteMinimal() {
+		alg.pushScope("isPermuteMinimal");
 		List<Permutation<Boolean>> perms = Permutation.nontrivialPerms(getArity());
 
 		BOOL b = alg.TRUE;
 		for (Permutation<Boolean> p : perms)
 			b = alg.and(b, isLexLeq(permute(p)));
 
+		alg.popScope("isPermuteMinimal");
+		return b;
+	}
+
+	/**
+	 * Returns the lex-leader condition for the group generated by the given
+	 * permutations of the arguments (acting as in permute) and permutations
+	 * of the universe (acting by conjugation). This uses one comparison per
+	 * generator, so it keeps at least one operation from each orbit.
+	 */
+	public BOOL isLexLeader(List<Permutation<Boolean>> argGens,
+			List<Permutation<Boolean>> domainGens) {
+		alg.pushScope("isLexLeader");
+
+		List<int[]> perms = new ArrayList<int[]>();
+		for (Permutation<Boolean> gen : argGens) {
+			assert gen.getSize() == getArity();
+
+			int[] vars = Permutation.decode(gen);
+			int[] map = new int[vars.length + 1];
+			for (int i = 0; i < vars.length; i++)
+				map[i + 1] = vars[i] + 1;
+			perms.add(Permutation.reshapePositions(getSize(), map));
+		}
+
+		for (Permutation<Boolean> gen : domainGens) {
+			assert gen.getSize() == getSize();
+			perms.add(Permutation.relabelPositions(getSize(), getArity() + 1,
+					Permutation.decode(gen)));
+		}
+
+		BOOL b = alg.lexLeader(tensor, perms);
+
+		alg.popScope("isLexLeader");
 		return b;
 	}
 
@@ -460,11 +496,89 @@ public class PartialOperation<BOOL> {
 		return new Relation<BOOL>(alg, t);
 	}
 
+	@SuppressWarnings("unchecked")
 	public BOOL preserves(Relation<BOOL> rel) {
+		PreservesCache cache = PreservesCache.getShared();
+		if (cache != null && alg == BoolAlgebra.INSTANCE)
+			return (BOOL) (Boolean) cache.preserves(
+					(PartialOperation<Boolean>) this, (Relation<Boolean>) rel);
+
+		return computePreserves(rel);
+	}
+
+	@SuppressWarnings("unchecked")
+	BOOL computePreserves(Relation<BOOL> rel) {
+		if (alg == BoolAlgebra.INSTANCE && rel.getArity() >= 1)
+			return (BOOL) (Boolean) preservesConcrete(
+					(PartialOperation<Boolean>) this, (Relation<Boolean>) rel);
+
+		alg.pushScope("preserves");
+
+		BOOL b;
 		if (getArity() == 0)
-			return asRelation().isSubsetOf(rel.diagonal());
+			b = asRelation().isSubsetOf(rel.diagonal());
 		else
-			return evaluate(rel).isSubsetOf(rel);
+			b = evaluate(rel).isSubsetOf(rel);
+
+		alg.popScope("preserves");
+		return b;
+	}
+
+	/*
+	 * Applies the operation to all choices of tuples of the relation
+	 * coordinatewise, and stops at the first image not in the relation.
+	 */
+	private static boolean preservesConcrete(PartialOperation<Boolean> op,
+			Relation<Boolean> rel) {
+		assert op.getSize() == rel.getSize();
+
+		int size = op.getSize();
+		int arity = op.getArity();
+		int relArity = rel.getArity();
+
+		Tensor<Integer> table = decode(op);
+		Tensor<Boolean> member = rel.getTensor();
+
+		List<int[]> tuples = new ArrayList<int[]>();
+		for (int pos = 0; pos < member.getElemCount(); pos++) {
+			if (!member.getElemAt(pos))
+				continue;
+
+			int[] tuple = new int[relArity];
+			for (int i = 0, p = pos; i < relArity; i++, p /= size)
+				tuple[i] = p % size;
+			tuples.add(tuple);
+		}
+
+		if (tuples.isEmpty() && arity > 0)
+			return true;
+
+		int[] choice = new int[arity];
+		for (;;) {
+			int image = 0;
+			for (int i = relArity - 1; i >= 0; i--) {
+				int pos = 0;
+				for (int j = arity - 1; j >= 0; j--)
+					pos = pos * size + tuples.get(choice[j])[i];
+
+				int value = table.getElemAt(pos);
+				if (value < 0) {
+					image = -1;
+					break;
+				}
+				image = image * size + value;
+			}
+
+			if (image >= 0 && !member.getElemAt(image))
+				return false;
+
+			int k = 0;
+			while (k < arity && ++choice[k] >= tuples.size())
+				choice[k++] = 0;
+
+			if (k >= arity)
+				return true;
+		}
 	}
 
 	public BOOL commutes(PartialOperation<BOOL> op) {
@@ -598,9 +712,45 @@ public class PartialOperation<BOOL> {
 		PartialOperation<BOOL> op = (PartialOperation<BOOL>) other;
 		assert alg == op.alg;
 
+		if (alg == BoolAlgebra.INSTANCE
+				&& getFingerprint() != op.getFingerprint())
+			return false;
+
 		return tensor.equals(op.tensor);
 	}
 
+	/**
+	 * Returns a 64-bit hash of the concrete operation, which is computed once and
+	 * cached, so the tensor must not be modified afterwards.
+	 */
+	public long getFingerprint() {
+		assert alg == BoolAlgebra.INSTANCE;
+
+		long h = fingerprint;
+		if (h == 0) {
+			@SuppressWarnings("unchecked")
+			Tensor<Boolean> t = (Tensor<Boolean>) tensor;
+			h = FingerprintMap.fingerprint(t);
+			if (h == 0)
+				h = 1;
+			fingerprint = h;
+		}
+		return h;
+	}
+
+	@Override
+	public int hashCode() {
+		if (alg == BoolAlgebra.INSTANCE) {
+			long h = getFingerprint();
+			return (int) (h ^ (h >>> 32));
+		}
+
+		int h = 1;
+		for (BOOL b : tensor)
+			h = 31 * h + b.hashCode();
+		return h;
+	}
+
 	public static final Comparator<PartialOperation<Boolean>> COMPARATOR = new Comparator<PartialOperation<Boolean>>() {
 		final Comparator<Tensor<Boolean>> comp = Tensor.comparator(BoolAlgebra.COMPARATOR);
 
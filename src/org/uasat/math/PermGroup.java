@@ -0,0 +1,578 @@
+/**
+ * Copyright (C) Miklos Maroti, 2018
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation; either version 2 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package org.uasat.math;
+
+import java.math.*;
+import java.util.*;
+
+import org.uasat.core.*;
+
+/**
+ * A concrete permutation group given by generators, stored as a base and
+ * strong generating set computed by the Schreier-Sims algorithm. The
+ * permutations are arrays mapping each point to its image.
+ */
+public final class PermGroup {
+	private final int size;
+	private final List<int[]> generators;
+
+	private final List<Integer> base = new ArrayList<Integer>();
+	private final List<int[]> strongGens = new ArrayList<int[]>();
+	private final List<int[][]> transversals = new ArrayList<int[][]>();
+
+	public int getSize() {
+		return size;
+	}
+
+	public PermGroup(int size, List<int[]> generators) {
+		assert size >= 1;
+
+		this.size = size;
+		this.generators = new ArrayList<int[]>();
+
+		for (int[] gen : generators) {
+			assert gen.length == size;
+			if (!isIdentity(gen)) {
+				this.generators.add(gen.clone());
+				strongGens.add(gen.clone());
+			}
+		}
+
+		schreierSims();
+	}
+
+	public static PermGroup wrap(int size, List<Permutation<Boolean>> perms) {
+		List<int[]> list = new ArrayList<int[]>();
+		for (Permutation<Boolean> perm : perms) {
+			assert perm.getSize() == size;
+			list.add(Permutation.decode(perm));
+		}
+		return new PermGroup(size, list);
+	}
+
+	public List<Permutation<Boolean>> getGenerators() {
+		List<Permutation<Boolean>> list = new ArrayList<Permutation<Boolean>>();
+		for (int[] gen : generators)
+			list.add(Permutation.create(gen));
+		return list;
+	}
+
+	public List<Integer> getBase() {
+		return base;
+	}
+
+	private static boolean isIdentity(int[] perm) {
+		for (int i = 0; i < perm.length; i++)
+			if (perm[i] != i)
+				return false;
+		return true;
+	}
+
+	private static int[] invert(int[] perm) {
+		int[] inv = new int[perm.length];
+		for (int i = 0; i < perm.length; i++)
+			inv[perm[i]] = i;
+		return inv;
+	}
+
+	private static boolean fixes(int[] perm, List<Integer> points, int count) {
+		for (int i = 0; i < count; i++) {
+			int b = points.get(i);
+			if (perm[b] != b)
+				return false;
+		}
+		return true;
+	}
+
+	/*
+	 * The transversal of a level maps each point of the orbit of the base
+	 * point to a permutation taking the base point there, using the strong
+	 * generators that fix the earlier base points.
+	 */
+	private int[][] computeTransversal(int level) {
+		int[][] trans = new int[size][];
+
+		int b = base.get(level);
+		int[] id = new int[size];
+		for (int i = 0; i < size; i++)
+			id[i] = i;
+		trans[b] = id;
+
+		List<int[]> gens = new ArrayList<int[]>();
+		for (int[] gen : strongGens)
+			if (fixes(gen, base, level))
+				gens.add(gen);
+
+		List<Integer> queue = new ArrayList<Integer>();
+		queue.add(b);
+		for (int k = 0; k < queue.size(); k++) {
+			int x = queue.get(k);
+			int[] u = trans[x];
+			for (int[] gen : gens) {
+				int y = gen[x];
+				if (trans[y] == null) {
+					int[] v = new int[size];
+					for (int i = 0; i < size; i++)
+						v[i] = gen[u[i]];
+					trans[y] = v;
+					queue.add(y);
+				}
+			}
+		}
+
+		return trans;
+	}
+
+	private void ensureBase(int[] perm) {
+		if (fixes(perm, base, base.size()))
+			for (int i = 0; i < size; i++)
+				if (perm[i] != i) {
+					base.add(i);
+					return;
+				}
+	}
+
+	/*
+	 * Divides the permutation by the transversal elements starting at the
+	 * given level, and returns the level where this fails, or the number of
+	 * levels. The residue is stored back in the array.
+	 */
+	private int strip(int[] perm, int level) {
+		for (; level < base.size(); level++) {
+			int[] u = transversals.get(level)[perm[base.get(level)]];
+			if (u == null)
+				return level;
+
+			int[] inv = invert(u);
+			for (int i = 0; i < size; i++)
+				perm[i] = inv[perm[i]];
+		}
+
+		return level;
+	}
+
+	private void schreierSims() {
+		for (int[] gen : strongGens)
+			ensureBase(gen);
+
+		for (int i = 0; i < base.size(); i++)
+			transversals.add(computeTransversal(i));
+
+		int level = base.size() - 1;
+		while (level >= 0) {
+			int found = -1;
+
+			int[][] trans = transversals.get(level);
+			List<int[]> gens = new ArrayList<int[]>();
+			for (int[] gen : strongGens)
+				if (fixes(gen, base, level))
+					gens.add(gen);
+
+			outer: for (int x = 0; x < size; x++) {
+				if (trans[x] == null)
+					continue;
+
+				for (int[] gen : gens) {
+					int[] uinv = invert(trans[gen[x]]);
+					int[] g = new int[size];
+					for (int i = 0; i < size; i++)
+						g[i] = uinv[gen[trans[x][i]]];
+
+					int j = strip(g, level + 1);
+					if (j < base.size() || !isIdentity(g)) {
+						strongGens.add(g);
+						ensureBase(g);
+
+						while (transversals.size() < base.size())
+							transversals.add(null);
+						for (int k = level + 1; k < base.size(); k++)
+							transversals.set(k, computeTransversal(k));
+
+						found = j;
+						break outer;
+					}
+				}
+			}
+
+			if (found >= 0)
+				level = Math.min(found, base.size() - 1);
+			else
+				level -= 1;
+		}
+	}
+
+	public BigInteger getOrder() {
+		BigInteger order = BigInteger.ONE;
+		for (int[][] trans : transversals) {
+			int count = 0;
+			for (int[] u : trans)
+				if (u != null)
+					count += 1;
+			order = order.multiply(BigInteger.valueOf(count));
+		}
+		return order;
+	}
+
+	public boolean contains(int[] perm) {
+		assert perm.length == size;
+
+		int[] g = perm.clone();
+		return strip(g, 0) == base.size() && isIdentity(g);
+	}
+
+	public boolean contains(Permutation<Boolean> perm) {
+		return contains(Permutation.decode(perm));
+	}
+
+	/**
+	 * Returns the orbit of the given point under the group.
+	 */
+	public BitSet getOrbit(int point) {
+		return getOrbit(size, generators, point);
+	}
+
+	private static BitSet getOrbit(int size, List<int[]> generators, int point) {
+		BitSet orbit = new BitSet(size);
+		orbit.set(point);
+
+		List<Integer> queue = new ArrayList<Integer>();
+		queue.add(point);
+		for (int k = 0; k < queue.size(); k++)
+			for (int[] gen : generators) {
+				int y = gen[queue.get(k)];
+				if (!orbit.get(y)) {
+					orbit.set(y);
+					queue.add(y);
+				}
+			}
+
+		return orbit;
+	}
+
+	/**
+	 * Returns the orbits of the group, each orbit listed once in the order
+	 * of their smallest elements.
+	 */
+	public List<BitSet> getOrbits() {
+		List<BitSet> orbits = new ArrayList<BitSet>();
+		BitSet seen = new BitSet(size);
+		for (int i = seen.nextClearBit(0); i < size; i = seen.nextClearBit(i)) {
+			BitSet orbit = getOrbit(i);
+			orbits.add(orbit);
+			seen.or(orbit);
+		}
+		return orbits;
+	}
+
+	/*
+	 * Enumerates the products of one element from each transversal, the
+	 * earlier levels changing the slowest, without storing the group.
+	 */
+	private class ElementIterator implements Iterator<int[]> {
+		private final List<int[][]> levels = new ArrayList<int[][]>();
+		private final int[] digits;
+		private boolean done = false;
+
+		public ElementIterator() {
+			for (int[][] trans : transversals) {
+				List<int[]> list = new ArrayList<int[]>();
+				for (int[] u : trans)
+					if (u != null)
+						list.add(u);
+				levels.add(list.toArray(new int[list.size()][]));
+			}
+			digits = new int[levels.size()];
+		}
+
+		@Override
+		public boolean hasNext() {
+			return !done;
+		}
+
+		@Override
+		public int[] next() {
+			if (done)
+				throw new NoSuchElementException();
+
+			int[] g = new int[size];
+			for (int i = 0; i < size; i++)
+				g[i] = i;
+
+			for (int k = 0; k < digits.length; k++) {
+				int[] u = levels.get(k)[digits[k]];
+				int[] h = new int[size];
+				for (int i = 0; i < size; i++)
+					h[i] = g[u[i]];
+				g = h;
+			}
+
+			int k = digits.length - 1;
+			while (k >= 0 && ++digits[k] >= levels.get(k).length)
+				digits[k--] = 0;
+			done = k < 0;
+
+			return g;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	/**
+	 * Lists the elements of the group as products of transversal elements.
+	 * If the limit is positive, then at most that many are returned,
+	 * otherwise all of them. The elements are generated one by one, so a
+	 * small limit is cheap even for a huge group.
+	 */
+	public List<Permutation<Boolean>> getElements(int limit) {
+		List<Permutation<Boolean>> list = new ArrayList<Permutation<Boolean>>();
+		Iterator<int[]> iter = new ElementIterator();
+		while (iter.hasNext() && (limit <= 0 || list.size() < limit))
+			list.add(Permutation.create(iter.next()));
+		return list;
+	}
+
+	/**
+	 * Returns the distinct images of a tensor of shape [size]^k when all of
+	 * its indices are relabeled by the elements of the group (as in
+	 * Relation.conjugate), in lexicographic order. The orbit is found by a
+	 * breadth first search over the generators, so it takes time
+	 * proportional to the orbit size rather than to the group order.
+	 */
+	public List<Tensor<Boolean>> getOrbit(Tensor<Boolean> tensor) {
+		int order = tensor.getOrder();
+		for (int i = 0; i < order; i++)
+			assert tensor.getDim(i) == size;
+
+		List<int[]> positions = new ArrayList<int[]>();
+		for (int[] gen : generators)
+			positions.add(Permutation.relabelPositions(size, order, gen));
+
+		Set<Tensor<Boolean>> set = new TreeSet<Tensor<Boolean>>(
+				Tensor.comparator(BoolAlgebra.COMPARATOR));
+		List<Tensor<Boolean>> queue = new ArrayList<Tensor<Boolean>>();
+		set.add(tensor);
+		queue.add(tensor);
+
+		for (int k = 0; k < queue.size(); k++) {
+			Tensor<Boolean> current = queue.get(k);
+			for (int[] pos : positions) {
+				Tensor<Boolean> image = Tensor.constant(tensor.getShape(),
+						Boolean.FALSE);
+				for (int i = 0; i < pos.length; i++)
+					if (current.getElemAt(pos[i]))
+						image.setElemAt(i, Boolean.TRUE);
+
+				if (set.add(image))
+					queue.add(image);
+			}
+		}
+
+		return new ArrayList<Tensor<Boolean>>(set);
+	}
+
+	/**
+	 * Returns the group of those permutations of the universe that preserve
+	 * each of the given concrete relations. The generators are found by a
+	 * backtracking search that fixes the points one by one, and a point is
+	 * only tried as an image if it is not yet in the orbit generated by the
+	 * automorphisms found so far. The candidates are pruned by an invariant
+	 * coloring of the points.
+	 */
+	static PermGroup automorphisms(int size, List<Relation<Boolean>> rels) {
+		AutoSearch search = new AutoSearch(size, rels);
+
+		List<int[]> gens = new ArrayList<int[]>();
+		for (int point = size - 1; point >= 0; point--) {
+			BitSet orbit = getOrbit(size, gens, point);
+
+			for (int y = point + 1; y < size; y++) {
+				if (orbit.get(y))
+					continue;
+
+				int[] perm = search.find(point, y);
+				if (perm != null) {
+					gens.add(perm);
+					orbit = getOrbit(size, gens, point);
+				}
+			}
+		}
+
+		return new PermGroup(size, gens);
+	}
+
+	private static class AutoSearch {
+		private final int size;
+		private final List<boolean[]> members = new ArrayList<boolean[]>();
+		private final List<List<int[]>> constraints;
+		private final int[] colors;
+
+		private final int[] image;
+		private final boolean[] used;
+
+		AutoSearch(int size, List<Relation<Boolean>> rels) {
+			this.size = size;
+
+			List<int[]> tuples = new ArrayList<int[]>();
+			List<Integer> owners = new ArrayList<Integer>();
+			for (int r = 0; r < rels.size(); r++) {
+				Relation<Boolean> rel = rels.get(r);
+				assert rel.getSize() == size;
+
+				Tensor<Boolean> tensor = rel.getTensor();
+				boolean[] member = new boolean[tensor.getElemCount()];
+				for (int pos = 0; pos < member.length; pos++) {
+					member[pos] = tensor.getElemAt(pos);
+					if (!member[pos])
+						continue;
+
+					int[] tuple = new int[rel.getArity()];
+					for (int i = 0, p = pos; i < tuple.length; i++, p /= size)
+						tuple[i] = p % size;
+					tuples.add(tuple);
+					owners.add(r);
+				}
+				members.add(member);
+			}
+
+			colors = refineColors(size, tuples, owners);
+
+			// each tuple is checked when its largest point gets assigned
+			constraints = new ArrayList<List<int[]>>();
+			for (int i = 0; i < size; i++)
+				constraints.add(new ArrayList<int[]>());
+			for (int k = 0; k < tuples.size(); k++) {
+				int[] tuple = tuples.get(k);
+				int m = 0;
+				for (int x : tuple)
+					m = Math.max(m, x);
+
+				int[] c = new int[tuple.length + 1];
+				c[0] = owners.get(k);
+				System.arraycopy(tuple, 0, c, 1, tuple.length);
+				constraints.get(m).add(c);
+			}
+
+			image = new int[size];
+			used = new boolean[size];
+		}
+
+		/*
+		 * Iterated color refinement: the new color of a point is determined by
+		 * its old color and the multiset of the colored tuples containing it.
+		 */
+		private static int[] refineColors(int size, List<int[]> tuples,
+				List<Integer> owners) {
+			int[] colors = new int[size];
+			int count = 1;
+
+			for (int round = 0; round <= size; round++) {
+				long[] hashes = new long[size];
+				for (int i = 0; i < size; i++)
+					hashes[i] = colors[i];
+
+				for (int k = 0; k < tuples.size(); k++) {
+					int[] tuple = tuples.get(k);
+
+					long h = 0xcbf29ce484222325L ^ owners.get(k);
+					for (int x : tuple)
+						h = (h ^ colors[x]) * 0x100000001b3L;
+
+					for (int i = 0; i < tuple.length; i++) {
+						long g = (h ^ i) * 0x9e3779b97f4a7c15L;
+						hashes[tuple[i]] += g ^ (g >>> 31);
+					}
+				}
+
+				Map<Long, Integer> map = new HashMap<Long, Integer>();
+				int[] next = new int[size];
+				for (int i = 0; i < size; i++) {
+					long h = hashes[i] * 0x9e3779b97f4a7c15L + colors[i];
+					Integer c = map.get(h);
+					if (c == null) {
+						c = map.size();
+						map.put(h, c);
+					}
+					next[i] = c;
+				}
+
+				colors = next;
+				if (map.size() == count)
+					break;
+				count = map.size();
+			}
+
+			return colors;
+		}
+
+		private boolean check(int point) {
+			for (int[] c : constraints.get(point)) {
+				int pos = 0;
+				for (int i = c.length - 1; i >= 1; i--)
+					pos = pos * size + image[c[i]];
+
+				if (!members.get(c[0])[pos])
+					return false;
+			}
+			return true;
+		}
+
+		private boolean extend(int point) {
+			if (point >= size)
+				return true;
+
+			for (int y = 0; y < size; y++) {
+				if (used[y] || colors[y] != colors[point])
+					continue;
+
+				image[point] = y;
+				used[y] = true;
+				if (check(point) && extend(point + 1))
+					return true;
+				used[y] = false;
+			}
+
+			return false;
+		}
+
+		/*
+		 * Returns an automorphism fixing the points before the given one and
+		 * mapping it to the target, or null if there is none.
+		 */
+		int[] find(int point, int target) {
+			if (colors[point] != colors[target])
+				return null;
+
+			Arrays.fill(used, false);
+			for (int i = 0; i < point; i++) {
+				image[i] = i;
+				used[i] = true;
+			}
+
+			image[point] = target;
+			used[target] = true;
+			if (!check(point) || !extend(point + 1))
+				return null;
+
+			return image.clone();
+		}
+	}
+}
@@ -183,6 +183,47 @@ public final class Permutation<BOOL> {
 		return asOperation().isIdempotent();
 	}
 
+	/*
+	 * Returns where the elements of a tensor of shape [size]^map.length come
+	 * from after reshaping it with the given map: position i of the result
+	 * holds the element at position perm[i].
+	 */
+	static int[] reshapePositions(int size, int[] map) {
+		int[] shape = Util.createShape(size, map.length);
+
+		Tensor<Integer> index = Tensor.constant(Integer.TYPE, shape, 0);
+		for (int i = 0; i < index.getElemCount(); i++)
+			index.setElemAt(i, i);
+		index = Tensor.reshape(index, shape, map);
+
+		int[] perm = new int[index.getElemCount()];
+		for (int i = 0; i < perm.length; i++)
+			perm[i] = index.getElemAt(i);
+		return perm;
+	}
+
+	/*
+	 * Returns where the elements of a tensor of shape [size]^order come from
+	 * after replacing each index x by perm[x] in all coordinates, as done by
+	 * Relation.conjugate.
+	 */
+	static int[] relabelPositions(int size, int order, int[] perm) {
+		int[] result = new int[Util.getShapeSize(Util.createShape(size, order))];
+
+		int[] index = new int[order];
+		for (int pos = 0; pos < result.length; pos++) {
+			int p = 0;
+			for (int i = order - 1; i >= 0; i--)
+				p = p * size + perm[index[i]];
+			result[pos] = p;
+
+			for (int i = 0; i < order && ++index[i] >= size; i++)
+				index[i] = 0;
+		}
+
+		return result;
+	}
+
 	public static int[] decode(Permutation<Boolean> perm) {
 		assert perm.isPermutation();
 
@@ -0,0 +1,149 @@
+/**
+ * Copyright (C) Miklos Maroti, 2018
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation; either version 2 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package org.uasat.math;
+
+import java.util.*;
+
+import org.uasat.core.*;
+
+/**
+ * A bounded cache of the concrete preserves results, keyed by the
+ * operations and relations themselves. Their 64-bit fingerprints are used
+ * for hashing, and a matching entry is confirmed by comparing the tables,
+ * so fingerprint collisions cannot return wrong results. The least recently
+ * used entries are evicted first. The methods are thread safe.
+ */
+public final class PreservesCache {
+	private final int capacity;
+	private final LinkedHashMap<Key, Boolean> map;
+	private long hits = 0;
+	private long misses = 0;
+
+	private static volatile PreservesCache shared = null;
+
+	/**
+	 * Returns the cache consulted by the concrete PartialOperation.preserves
+	 * method, or null if caching is disabled, which is the default. Each
+	 * entry keeps its operation and relation alive, and a hit still compares
+	 * both tables, so it only pays off for expensive checks that repeat.
+	 */
+	public static PreservesCache getShared() {
+		return shared;
+	}
+
+	/**
+	 * Sets the cache consulted by the concrete PartialOperation.preserves
+	 * method, use null to disable caching.
+	 */
+	public static void setShared(PreservesCache cache) {
+		shared = cache;
+	}
+
+	public PreservesCache(final int capacity) {
+		assert capacity >= 1;
+
+		this.capacity = capacity;
+		this.map = new LinkedHashMap<Key, Boolean>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, Boolean> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public synchronized int getSize() {
+		return map.size();
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public synchronized double getHitRate() {
+		long total = hits + misses;
+		return total == 0 ? 0.0 : (double) hits / total;
+	}
+
+	public synchronized void clear() {
+		map.clear();
+		hits = 0;
+		misses = 0;
+	}
+
+	private static final class Key {
+		private final PartialOperation<Boolean> op;
+		private final Relation<Boolean> rel;
+
+		Key(PartialOperation<Boolean> op, Relation<Boolean> rel) {
+			this.op = op;
+			this.rel = rel;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			Key key = (Key) other;
+			return op.equals(key.op) && rel.equals(key.rel);
+		}
+
+		@Override
+		public int hashCode() {
+			long h = op.getFingerprint() * 0x9e3779b97f4a7c15L
+					+ rel.getFingerprint();
+			return (int) (h ^ (h >>> 32));
+		}
+	}
+
+	public boolean preserves(PartialOperation<Boolean> op, Relation<Boolean> rel) {
+		assert op.getAlg() == BoolAlgebra.INSTANCE;
+
+		Key key = new Key(op, rel);
+
+		synchronized (this) {
+			Boolean b = map.get(key);
+			if (b != null) {
+				hits += 1;
+				return b;
+			}
+			misses += 1;
+		}
+
+		boolean b = op.computePreserves(rel);
+
+		synchronized (this) {
+			map.put(key, b);
+		}
+
+		return b;
+	}
+
+	public synchronized void print() {
+		System.out.println("preserves cache: " + map.size() + " entries, "
+				+ hits + " hits, " + misses + " misses");
+	}
+}
@@ -20,12 +20,14 @@ package org.uasat.math;
 
 import java.io.*;
 import java.util.*;
+import java.util.function.Consumer;
 
 import org.uasat.core.*;
 
 public final class Relation<BOOL> {
 	private final BoolAlgebra<BOOL> alg;
 	private final Tensor<BOOL> tensor;
+	private volatile long fingerprint = 0;
 
 	public BoolAlgebra<BOOL> getAlg() {
 		return alg;
@@ -265,19 +267,192 @@ public final class Relation<BOOL> {
 		return permute(Permutation.decode(perm));
 	}
 
+	@SuppressWarnings("unchecked")
 	public BOOL isLexMinimal() {
+		if (alg == BoolAlgebra.INSTANCE)
+			return (BOOL) (Boolean) isLexMinimal((Relation<Boolean>) this);
+
+		alg.pushScope("isLexMinimal");
 		List<Permutation<Boolean>> perms = Permutation.nontrivialPerms(getArity());
 
 		BOOL b = alg.TRUE;
 		for (Permutation<Boolean> p : perms)
 			b = alg.and(b, isLexLeq(permute(p)));
 
+		alg.popScope("isLexMinimal");
 		return b;
 	}
 
+	private static boolean[] getBits(Relation<Boolean> rel) {
+		Tensor<Boolean> tensor = rel.getTensor();
+		boolean[] bits = new boolean[tensor.getElemCount()];
+		for (int i = 0; i < bits.length; i++)
+			bits[i] = tensor.getElemAt(i);
+		return bits;
+	}
+
+	/*
+	 * Compares the image of the relation under the given coordinate
+	 * permutation (as in permute) and domain permutation with the other
+	 * relation in the lexicographic order of isLexLess, and stops at the
+	 * first difference. When result is not null, then the image is stored
+	 * there.
+	 */
+	private static int compareImage(boolean[] bits, int size, int[] coords,
+			int[] values, boolean[] other, boolean[] result) {
+		int arity = coords.length;
+
+		int[] inverse = null;
+		if (values != null) {
+			inverse = new int[size];
+			for (int i = 0; i < size; i++)
+				inverse[values[i]] = i;
+		}
+
+		int[] step = new int[arity];
+		for (int i = 0, s = 1; i < arity; i++, s *= size)
+			step[i] = s;
+
+		int[] index = new int[arity];
+		for (int idx = 0; idx < bits.length; idx++) {
+			int pos = 0;
+			for (int i = 0; i < arity; i++) {
+				int v = index[i];
+				pos += step[coords[i]] * (inverse != null ? inverse[v] : v);
+			}
+
+			boolean b = bits[pos];
+			if (result != null)
+				result[idx] = b;
+			else if (b != other[idx])
+				return b ? 1 : -1;
+
+			for (int i = 0; i < arity && ++index[i] >= size; i++)
+				index[i] = 0;
+		}
+
+		return 0;
+	}
+
+	private static Relation<Boolean> wrap(int size, int arity, boolean[] bits) {
+		Tensor<Boolean> tensor = Tensor.constant(Util.createShape(size, arity),
+				Boolean.FALSE);
+		for (int i = 0; i < bits.length; i++)
+			if (bits[i])
+				tensor.setElemAt(i, Boolean.TRUE);
+		return wrap(tensor);
+	}
+
+	private static boolean isLexMinimal(Relation<Boolean> rel) {
+		boolean[] bits = getBits(rel);
+		Iterator<int[]> iter = Util.permIterator(rel.getArity());
+		while (iter.hasNext())
+			if (compareImage(bits, rel.getSize(), iter.next(), null, bits, null) < 0)
+				return false;
+
+		return true;
+	}
+
+	/**
+	 * Returns the lexicographically smallest relation obtained by permuting
+	 * the coordinates of the given one, which is the relation itself exactly
+	 * when it is lex minimal. Relations in the same orbit have the same
+	 * canonical form.
+	 */
+	public static Relation<Boolean> canonicalize(Relation<Boolean> rel) {
+		return canonicalize(rel, null);
+	}
+
+	/**
+	 * Returns the lexicographically smallest relation obtained by permuting
+	 * the coordinates of the given one and applying an element of the given
+	 * group of permutations of the universe (all elements must be listed).
+	 */
+	public static Relation<Boolean> canonicalize(Relation<Boolean> rel,
+			List<Permutation<Boolean>> group) {
+		int size = rel.getSize();
+		int arity = rel.getArity();
+
+		List<int[]> values = new ArrayList<int[]>();
+		if (group == null)
+			values.add(null);
+		else
+			for (Permutation<Boolean> perm : group) {
+				assert perm.getSize() == size;
+				values.add(Permutation.decode(perm));
+			}
+
+		boolean[] bits = getBits(rel);
+		boolean[] best = bits.clone();
+		boolean[] temp = new boolean[bits.length];
+
+		Iterator<int[]> iter = Util.permIterator(arity);
+		while (iter.hasNext()) {
+			int[] coords = iter.next();
+			for (int[] v : values) {
+				if (compareImage(bits, size, coords, v, best, null) < 0) {
+					compareImage(bits, size, coords, v, null, temp);
+					boolean[] t = best;
+					best = temp;
+					temp = t;
+				}
+			}
+		}
+
+		return wrap(size, arity, best);
+	}
+
+	/**
+	 * Returns those coordinate permutations that map the relation to itself.
+	 */
+	public static List<Permutation<Boolean>> stabilizer(Relation<Boolean> rel) {
+		List<Permutation<Boolean>> list = new ArrayList<Permutation<Boolean>>();
+
+		boolean[] bits = getBits(rel);
+		Iterator<int[]> iter = Util.permIterator(rel.getArity());
+		while (iter.hasNext()) {
+			int[] coords = iter.next();
+			if (compareImage(bits, rel.getSize(), coords, null, bits, null) == 0)
+				list.add(Permutation.create(coords));
+		}
+
+		return list;
+	}
+
+	/*
+	 * Concrete relations with at least this many possible tuples, of which at
+	 * most one in SPARSE_RATIO is present, use the kernels of SparseRelation.
+	 * Smaller tensors are cheaper to process densely than to scan.
+	 */
+	private static final int SPARSE_MIN = 4096;
+	private static final int SPARSE_RATIO = 16;
+
+	@SuppressWarnings("unchecked")
+	private static <BOOL> Relation<BOOL> fromSparse(SparseRelation rel) {
+		return (Relation<BOOL>) rel.asRelation();
+	}
+
+	/*
+	 * Returns the sparse form of the concrete relation, or null if it is
+	 * symbolic or has too many tuples. The tensor is scanned only once.
+	 */
+	@SuppressWarnings("unchecked")
+	private SparseRelation toSparse() {
+		if (alg != BoolAlgebra.INSTANCE
+				|| tensor.getElemCount() < SPARSE_MIN)
+			return null;
+
+		return SparseRelation.wrap((Relation<Boolean>) this,
+				tensor.getElemCount() / SPARSE_RATIO);
+	}
+
 	public Relation<BOOL> project(int... coords) {
 		assert coords.length <= getArity();
 
+		SparseRelation sparse = coords.length >= 1 ? toSparse() : null;
+		if (sparse != null)
+			return fromSparse(sparse.project(coords));
+
 		int[] map = new int[getArity()];
 		Arrays.fill(map, -1);
 
@@ -329,18 +504,96 @@ public final class Relation<BOOL> {
 		return Tensor.map2(alg.AND, tmp1, tmp2);
 	}
 
+	@SuppressWarnings("unchecked")
 	public Relation<BOOL> compose(Relation<BOOL> rel) {
+		if (alg == BoolAlgebra.INSTANCE && getArity() == 2 && rel.getArity() == 2)
+			return (Relation<BOOL>) multiplyBits((Relation<Boolean>) this, (Relation<Boolean>) rel, false);
+
+		SparseRelation sparse1 = toSparse();
+		SparseRelation sparse2 = sparse1 != null ? rel.toSparse() : null;
+		if (sparse2 != null)
+			return fromSparse(sparse1.compose(sparse2));
+
 		Tensor<BOOL> tmp = combine(rel);
 		tmp = Tensor.fold(alg.ANY, 1, tmp);
 		return new Relation<BOOL>(alg, tmp);
 	}
 
+	@SuppressWarnings("unchecked")
 	public Relation<BOOL> multiply(Relation<BOOL> rel) {
+		if (alg == BoolAlgebra.INSTANCE && getArity() == 2 && rel.getArity() == 2)
+			return (Relation<BOOL>) multiplyBits((Relation<Boolean>) this, (Relation<Boolean>) rel, true);
+
 		Tensor<BOOL> tmp = combine(rel);
 		tmp = Tensor.fold(alg.SUM, 1, tmp);
 		return new Relation<BOOL>(alg, tmp);
 	}
 
+	/*
+	 * Binary relations as bit matrices, where row x is the set of those y
+	 * for which (x,y) is in the relation, stored in 64-bit words.
+	 */
+	private static long[][] getRows(Relation<Boolean> rel) {
+		assert rel.getArity() == 2;
+
+		int size = rel.getSize();
+		int words = (size + 63) >> 6;
+		long[][] rows = new long[size][words];
+
+		Tensor<Boolean> tensor = rel.getTensor();
+		for (int y = 0, pos = 0; y < size; y++)
+			for (int x = 0; x < size; x++, pos++)
+				if (tensor.getElemAt(pos))
+					rows[x][y >> 6] |= 1L << y;
+
+		return rows;
+	}
+
+	private static Relation<Boolean> fromRows(long[][] rows) {
+		int size = rows.length;
+		Tensor<Boolean> tensor = Tensor.constant(new int[] { size, size }, Boolean.FALSE);
+
+		for (int x = 0; x < size; x++)
+			for (int y = 0; y < size; y++)
+				if ((rows[x][y >> 6] & (1L << y)) != 0)
+					tensor.setElemAt(x + size * y, Boolean.TRUE);
+
+		return wrap(tensor);
+	}
+
+	/*
+	 * Row x of the product is the union (or the sum modulo 2) of the rows z
+	 * of the second matrix for all z in row x of the first one.
+	 */
+	private static Relation<Boolean> multiplyBits(Relation<Boolean> rel1, Relation<Boolean> rel2, boolean xor) {
+		rel1.checkSize(rel2);
+
+		long[][] rows1 = getRows(rel1);
+		long[][] rows2 = getRows(rel2);
+
+		int size = rows1.length;
+		int words = (size + 63) >> 6;
+		long[][] rows = new long[size][words];
+
+		for (int x = 0; x < size; x++) {
+			long[] row = rows[x];
+			for (int z = 0; z < size; z++) {
+				if ((rows1[x][z >> 6] & (1L << z)) == 0)
+					continue;
+
+				long[] other = rows2[z];
+				if (xor)
+					for (int i = 0; i < words; i++)
+						row[i] ^= other[i];
+				else
+					for (int i = 0; i < words; i++)
+						row[i] |= other[i];
+			}
+		}
+
+		return fromRows(rows);
+	}
+
 	public Relation<BOOL> diagonal() {
 		int[] shape = new int[] { getSize() };
 		int[] map = new int[getArity()];
@@ -366,6 +619,11 @@ public final class Relation<BOOL> {
 	public Relation<BOOL> cartesian(Relation<BOOL> rel) {
 		assert alg == rel.getAlg() && getSize() == rel.getSize();
 
+		SparseRelation sparse1 = toSparse();
+		SparseRelation sparse2 = sparse1 != null ? rel.toSparse() : null;
+		if (sparse2 != null)
+			return fromSparse(sparse1.cartesian(sparse2));
+
 		int size = getSize();
 		int[] shape = new int[getArity() + rel.getArity()];
 		Arrays.fill(shape, size);
@@ -387,6 +645,11 @@ public final class Relation<BOOL> {
 	public Relation<BOOL> product(Relation<BOOL> rel) {
 		assert alg == rel.getAlg() && getArity() == rel.getArity();
 
+		SparseRelation sparse1 = toSparse();
+		SparseRelation sparse2 = sparse1 != null ? rel.toSparse() : null;
+		if (sparse2 != null)
+			return fromSparse(sparse1.product(sparse2));
+
 		final int a = getSize();
 		int s = a * rel.getSize();
 		int[] shape = new int[getArity()];
@@ -416,6 +679,10 @@ public final class Relation<BOOL> {
 	public Relation<BOOL> power(int exp) {
 		assert exp >= 1;
 
+		SparseRelation sparse = exp >= 2 ? toSparse() : null;
+		if (sparse != null)
+			return fromSparse(sparse.power(exp));
+
 		Relation<BOOL> rel = this;
 		for (int i = 1; i < exp; i++)
 			rel = product(rel);
@@ -433,12 +700,23 @@ public final class Relation<BOOL> {
 	}
 
 	public static Relation<Boolean> transitiveClosure(Relation<Boolean> rel) {
-		for (;;) {
-			Relation<Boolean> r = rel;
-			rel = rel.union(rel.compose(rel));
-			if (r.isEqualTo(rel))
-				return r;
+		long[][] rows = getRows(rel);
+
+		int size = rows.length;
+		int words = (size + 63) >> 6;
+
+		// Warshall: after step z all paths through 0,...,z are closed
+		for (int z = 0; z < size; z++) {
+			long[] middle = rows[z];
+			for (int x = 0; x < size; x++) {
+				long[] row = rows[x];
+				if ((row[z >> 6] & (1L << z)) != 0)
+					for (int i = 0; i < words; i++)
+						row[i] |= middle[i];
+			}
 		}
+
+		return fromRows(rows);
 	}
 
 	public static boolean isStronglyConnected(Relation<Boolean> rel) {
@@ -461,6 +739,40 @@ public final class Relation<BOOL> {
 		return new Relation<BOOL>(alg, t);
 	}
 
+	/**
+	 * Returns the lex-leader condition for the group generated by the given
+	 * coordinate permutations (acting as in permute) and permutations of the
+	 * universe (acting as in conjugate). Unlike isLexMinimal this uses only
+	 * one comparison per generator, so it keeps at least one but possibly
+	 * several relations from each orbit.
+	 */
+	public BOOL isLexLeader(List<Permutation<Boolean>> coordGens,
+			List<Permutation<Boolean>> domainGens) {
+		alg.pushScope("isLexLeader");
+
+		List<int[]> perms = new ArrayList<int[]>();
+		for (Permutation<Boolean> gen : coordGens) {
+			assert gen.getSize() == getArity();
+
+			int[] coords = Permutation.decode(gen);
+			int[] map = new int[coords.length];
+			for (int i = 0; i < coords.length; i++)
+				map[coords[i]] = i;
+			perms.add(Permutation.reshapePositions(getSize(), map));
+		}
+
+		for (Permutation<Boolean> gen : domainGens) {
+			assert gen.getSize() == getSize();
+			perms.add(Permutation.relabelPositions(getSize(), getArity(),
+					Permutation.decode(gen)));
+		}
+
+		BOOL b = alg.lexLeader(tensor, perms);
+
+		alg.popScope("isLexLeader");
+		return b;
+	}
+
 	public BOOL isLexLess(Relation<BOOL> rel) {
 		assert getAlg() == rel.getAlg() && getSize() == rel.getSize() && getArity() == rel.getArity();
 
@@ -528,8 +840,11 @@ public final class Relation<BOOL> {
 	}
 
 	public BOOL isOperation() {
+		alg.pushScope("isOperation");
 		Tensor<BOOL> rel = Tensor.fold(alg.ONE, 1, tensor);
-		return Tensor.fold(alg.ALL, rel.getOrder(), rel).get();
+		BOOL b = Tensor.fold(alg.ALL, rel.getOrder(), rel).get();
+		alg.popScope("isOperation");
+		return b;
 	}
 
 	public BOOL isPartialOperation() {
@@ -794,31 +1109,97 @@ public final class Relation<BOOL> {
 	public static List<Relation<Boolean>> subsets(int size, int card) {
 		assert 0 <= card && card <= size;
 
-		int[] s = new int[card];
-		for (int i = 0; i < card; i++)
-			s[i] = i;
-
-		int[] shape = new int[] { size };
 		List<Relation<Boolean>> list = new ArrayList<Relation<Boolean>>();
+		Iterator<Relation<Boolean>> iter = relationIterator(size, 1, card);
+		while (iter.hasNext())
+			list.add(iter.next());
+
+		return list;
+	}
 
-		outer: for (;;) {
-			Tensor<Boolean> tensor = Tensor.constant(shape, Boolean.FALSE);
-			for (int i = 0; i < card; i++)
-				tensor.setElem(Boolean.TRUE, s[i]);
+	/*
+	 * The relation whose tuples are at the given positions of the tensor.
+	 */
+	private static Relation<Boolean> fromPositions(int[] shape, int[] positions) {
+		Tensor<Boolean> tensor = Tensor.constant(shape, Boolean.FALSE);
+		for (int p : positions)
+			tensor.setElemAt(p, Boolean.TRUE);
+		return wrap(tensor);
+	}
 
-			list.add(wrap(tensor));
+	/**
+	 * Returns the relations of the given arity with exactly card tuples, each
+	 * created when requested. The tuples are ordered as the tensor elements
+	 * and the relations as their sets in Util.subsetIterator.
+	 */
+	public static Iterator<Relation<Boolean>> relationIterator(int size,
+			int arity, int card) {
+		final int[] shape = Util.createShape(size, arity);
+		final Iterator<int[]> iter = Util.subsetIterator(
+				Util.getShapeSize(shape), card);
 
-			for (int i = 0; i < card - 1; i++)
-				if (++s[i] < s[i + 1])
-					continue outer;
-				else
-					s[i] = i;
+		return new Iterator<Relation<Boolean>>() {
+			@Override
+			public boolean hasNext() {
+				return iter.hasNext();
+			}
 
-			if (card == 0 || ++s[card - 1] >= size)
-				break;
+			@Override
+			public Relation<Boolean> next() {
+				return fromPositions(shape, iter.next());
+			}
+		};
+	}
+
+	private static class RelationSpliterator implements
+			Spliterator<Relation<Boolean>> {
+		private final int[] shape;
+		private final Spliterator<int[]> spliter;
+
+		public RelationSpliterator(int[] shape, Spliterator<int[]> spliter) {
+			this.shape = shape;
+			this.spliter = spliter;
 		}
 
-		return list;
+		@Override
+		public boolean tryAdvance(
+				final Consumer<? super Relation<Boolean>> action) {
+			return spliter.tryAdvance(new Consumer<int[]>() {
+				@Override
+				public void accept(int[] positions) {
+					action.accept(fromPositions(shape, positions));
+				}
+			});
+		}
+
+		@Override
+		public Spliterator<Relation<Boolean>> trySplit() {
+			Spliterator<int[]> prefix = spliter.trySplit();
+			return prefix == null ? null : new RelationSpliterator(shape,
+					prefix);
+		}
+
+		@Override
+		public long estimateSize() {
+			return spliter.estimateSize();
+		}
+
+		@Override
+		public int characteristics() {
+			return spliter.characteristics();
+		}
+	}
+
+	/**
+	 * Returns a spliterator for the relations of relationIterator, which can
+	 * be split by ranks to scan them in parallel (for example with
+	 * StreamSupport.stream) without holding them in memory.
+	 */
+	public static Spliterator<Relation<Boolean>> relationSpliterator(int size,
+			int arity, int card) {
+		int[] shape = Util.createShape(size, arity);
+		return new RelationSpliterator(shape, Util.subsetSpliterator(
+				Util.getShapeSize(shape), card));
 	}
 
 	public static List<Relation<Boolean>> subsets(int size, int minCard, int maxCard) {
@@ -837,9 +1218,45 @@ public final class Relation<BOOL> {
 		Relation<BOOL> rel = (Relation<BOOL>) other;
 		assert alg == rel.alg;
 
+		if (alg == BoolAlgebra.INSTANCE
+				&& getFingerprint() != rel.getFingerprint())
+			return false;
+
 		return tensor.equals(rel.tensor);
 	}
 
+	/**
+	 * Returns a 64-bit hash of the concrete relation, which is computed once and
+	 * cached, so the tensor must not be modified afterwards.
+	 */
+	public long getFingerprint() {
+		assert alg == BoolAlgebra.INSTANCE;
+
+		long h = fingerprint;
+		if (h == 0) {
+			@SuppressWarnings("unchecked")
+			Tensor<Boolean> t = (Tensor<Boolean>) tensor;
+			h = FingerprintMap.fingerprint(t);
+			if (h == 0)
+				h = 1;
+			fingerprint = h;
+		}
+		return h;
+	}
+
+	@Override
+	public int hashCode() {
+		if (alg == BoolAlgebra.INSTANCE) {
+			long h = getFingerprint();
+			return (int) (h ^ (h >>> 32));
+		}
+
+		int h = 1;
+		for (BOOL b : tensor)
+			h = 31 * h + b.hashCode();
+		return h;
+	}
+
 	public static final Comparator<Relation<Boolean>> COMPARATOR = new Comparator<Relation<Boolean>>() {
 		final Comparator<Tensor<Boolean>> comp = Tensor.comparator(BoolAlgebra.COMPARATOR);
 
@@ -0,0 +1,334 @@
+/**
+ * Copyright (C) Miklos Maroti, 2018
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation; either version 2 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package org.uasat.math;
+
+import java.util.*;
+
+import org.uasat.core.*;
+
+/**
+ * A concrete relation stored as the sorted list of its tuples, each packed
+ * into a long as x1 + size * x2 + ... + size^(n-1) * xn, the position of the
+ * tuple in the tensor of the relation. The operations take time proportional
+ * to the number of tuples instead of size^arity, so products and powers of
+ * small relations stay small even when their dense tensors would not fit.
+ */
+public final class SparseRelation {
+	private final int size;
+	private final int arity;
+	private final long[] tuples;
+
+	public int getSize() {
+		return size;
+	}
+
+	public int getArity() {
+		return arity;
+	}
+
+	public int getTupleCount() {
+		return tuples.length;
+	}
+
+	/*
+	 * The positions must be sorted and distinct.
+	 */
+	private SparseRelation(int size, int arity, long[] tuples) {
+		assert size >= 1 && arity >= 1;
+		if (Math.log(size) * arity >= 63 * Math.log(2))
+			throw new IllegalArgumentException("too many tuples to pack");
+
+		this.size = size;
+		this.arity = arity;
+		this.tuples = tuples;
+	}
+
+	/*
+	 * Sorts the positions and removes the duplicates.
+	 */
+	private static SparseRelation create(int size, int arity, long[] tuples,
+			int count) {
+		Arrays.sort(tuples, 0, count);
+
+		int n = 0;
+		for (int i = 0; i < count; i++)
+			if (n == 0 || tuples[n - 1] != tuples[i])
+				tuples[n++] = tuples[i];
+
+		return new SparseRelation(size, arity, Arrays.copyOf(tuples, n));
+	}
+
+	private static long power(int size, int exp) {
+		long p = 1;
+		for (int i = 0; i < exp; i++)
+			p *= size;
+		return p;
+	}
+
+	private static int product(int count1, int count2) {
+		long n = (long) count1 * count2;
+		if (n > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("too many tuples");
+		return (int) n;
+	}
+
+	public static SparseRelation wrap(Relation<Boolean> rel) {
+		return wrap(rel, Integer.MAX_VALUE);
+	}
+
+	/*
+	 * Counts the tuples first and returns null as soon as there are more than
+	 * the limit, so nothing is allocated for dense relations.
+	 */
+	static SparseRelation wrap(Relation<Boolean> rel, int limit) {
+		Tensor<Boolean> tensor = rel.getTensor();
+
+		int n = 0;
+		for (int i = 0; i < tensor.getElemCount(); i++)
+			if (tensor.getElemAt(i) && ++n > limit)
+				return null;
+
+		long[] tuples = new long[n];
+		n = 0;
+		for (int i = 0; n < tuples.length; i++)
+			if (tensor.getElemAt(i))
+				tuples[n++] = i;
+
+		return new SparseRelation(rel.getSize(), rel.getArity(), tuples);
+	}
+
+	/**
+	 * Creates the relation with the given tuples, which can be in any order
+	 * and may contain duplicates. This never allocates the dense tensor, so
+	 * it can be used to build relations that would not fit in one.
+	 */
+	public static SparseRelation create(int size, int arity,
+			Collection<int[]> tuples) {
+		long[] result = new long[tuples.size()];
+		int n = 0;
+		for (int[] tuple : tuples) {
+			assert tuple.length == arity;
+
+			long p = 0;
+			for (int i = arity - 1; i >= 0; i--) {
+				assert 0 <= tuple[i] && tuple[i] < size;
+				p = p * size + tuple[i];
+			}
+			result[n++] = p;
+		}
+
+		return create(size, arity, result, n);
+	}
+
+	/**
+	 * Returns the tuples of the relation in the order of their positions in
+	 * the dense tensor.
+	 */
+	public List<int[]> getTuples() {
+		List<int[]> list = new ArrayList<int[]>(tuples.length);
+		for (int i = 0; i < tuples.length; i++)
+			list.add(getTuple(i));
+		return list;
+	}
+
+	public Relation<Boolean> asRelation() {
+		if (power(size, arity) > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("too large for a tensor");
+
+		Tensor<Boolean> tensor = Tensor.constant(
+				Util.createShape(size, arity), Boolean.FALSE);
+		for (long p : tuples)
+			tensor.setElemAt((int) p, Boolean.TRUE);
+
+		return Relation.wrap(tensor);
+	}
+
+	public int[] getTuple(int index) {
+		int[] tuple = new int[arity];
+		long p = tuples[index];
+		for (int i = 0; i < arity; i++) {
+			tuple[i] = (int) (p % size);
+			p /= size;
+		}
+		return tuple;
+	}
+
+	public boolean contains(int... tuple) {
+		assert tuple.length == arity;
+
+		long p = 0;
+		for (int i = arity - 1; i >= 0; i--) {
+			assert 0 <= tuple[i] && tuple[i] < size;
+			p = p * size + tuple[i];
+		}
+
+		return Arrays.binarySearch(tuples, p) >= 0;
+	}
+
+	/**
+	 * Returns the projection to the given coordinates, as in Relation.project.
+	 */
+	public SparseRelation project(int... coords) {
+		long[] steps = new long[arity];
+		for (int i = 0; i < arity; i++)
+			steps[i] = power(size, i);
+
+		long[] result = new long[tuples.length];
+		for (int t = 0; t < tuples.length; t++) {
+			long p = 0;
+			for (int i = coords.length - 1; i >= 0; i--)
+				p = p * size + (tuples[t] / steps[coords[i]]) % size;
+			result[t] = p;
+		}
+
+		return create(size, coords.length, result, result.length);
+	}
+
+	/**
+	 * Returns the tuples (x1,...,xn,y1,...,ym), where (x1,...,xn) is in this
+	 * relation and (y1,...,ym) is in the other one. The result is sorted
+	 * without comparisons since the y part is more significant.
+	 */
+	public SparseRelation cartesian(SparseRelation rel) {
+		assert size == rel.size;
+
+		long step = power(size, arity);
+		long[] result = new long[product(tuples.length,
+				rel.tuples.length)];
+
+		int n = 0;
+		for (long q : rel.tuples)
+			for (long p : tuples)
+				result[n++] = p + step * q;
+
+		return new SparseRelation(size, arity + rel.arity, result);
+	}
+
+	/**
+	 * Returns the direct product relation on the product of the two domains,
+	 * where the pair (a,b) is the element a + size * b as in
+	 * Relation.product.
+	 */
+	public SparseRelation product(SparseRelation rel) {
+		assert arity == rel.arity;
+
+		int s = size * rel.size;
+		long[] result = new long[product(tuples.length,
+				rel.tuples.length)];
+
+		int n = 0;
+		for (long p1 : tuples)
+			for (long p2 : rel.tuples) {
+				long p = 0, q1 = p1, q2 = p2, step = 1;
+				for (int i = 0; i < arity; i++) {
+					p += step * (q1 % size + size * (q2 % rel.size));
+					q1 /= size;
+					q2 /= rel.size;
+					step *= s;
+				}
+				result[n++] = p;
+			}
+
+		return create(s, arity, result, n);
+	}
+
+	public SparseRelation power(int exp) {
+		assert exp >= 1;
+
+		SparseRelation rel = this;
+		for (int i = 1; i < exp; i++)
+			rel = product(rel);
+
+		return rel;
+	}
+
+	/**
+	 * Returns the unary relation of those x for which (x,...,x) is in this
+	 * relation.
+	 */
+	public SparseRelation diagonal() {
+		long step = 0;
+		for (int i = 0; i < arity; i++)
+			step += power(size, i);
+
+		long[] result = new long[tuples.length];
+		int n = 0;
+		for (long p : tuples)
+			if (p % step == 0)
+				result[n++] = p / step;
+
+		return new SparseRelation(size, 1, Arrays.copyOf(result, n));
+	}
+
+	/**
+	 * Returns the relation of those (x,...,x) of the given arity where x is
+	 * in this unary relation.
+	 */
+	public SparseRelation diagonal(int arity) {
+		assert this.arity == 1;
+
+		long step = 0;
+		for (int i = 0; i < arity; i++)
+			step += power(size, i);
+
+		long[] result = new long[tuples.length];
+		for (int i = 0; i < tuples.length; i++)
+			result[i] = tuples[i] * step;
+
+		return new SparseRelation(size, arity, result);
+	}
+
+	/**
+	 * Returns the tuples (x1,...,xn,y2,...,ym) for which there is a z such
+	 * that (x1,...,xn,z) is in this relation and (z,y2,...,ym) is in the
+	 * other one, as in Relation.compose. The tuples of the other relation are
+	 * grouped by their first coordinate with a single pass over the sorted
+	 * list.
+	 */
+	public SparseRelation compose(SparseRelation rel) {
+		assert size == rel.size && arity >= 1 && rel.arity >= 1;
+		assert arity + rel.arity >= 3;
+
+		int[] start = new int[size + 1];
+		for (long q : rel.tuples)
+			start[(int) (q % size) + 1]++;
+		for (int z = 0; z < size; z++)
+			start[z + 1] += start[z];
+
+		long[] tails = new long[rel.tuples.length];
+		int[] next = Arrays.copyOf(start, size);
+		for (long q : rel.tuples)
+			tails[next[(int) (q % size)]++] = q / size;
+
+		long last = power(size, arity - 1);
+		long[] result = new long[Math.max(16, tuples.length)];
+		int n = 0;
+		for (long p : tuples) {
+			int z = (int) (p / last);
+			long head = p % last;
+			for (int j = start[z]; j < start[z + 1]; j++) {
+				if (n == result.length)
+					result = Arrays.copyOf(result, 2 * n);
+				result[n++] = head + last * tails[j];
+			}
+		}
+
+		return create(size, arity + rel.arity - 2, result, n);
+	}
+}
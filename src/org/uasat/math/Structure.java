@@ -158,6 +158,13 @@ public final class Structure<BOOL> implements Iterable<Relation<BOOL>> {
 				new ArrayList<Relation<Boolean>>());
 	}
 
+	/**
+	 * Returns the group of automorphisms of the concrete structure.
+	 */
+	public static PermGroup automorphisms(Structure<Boolean> str) {
+		return PermGroup.automorphisms(str.size, str.relations);
+	}
+
 	public static void print(Structure<Boolean> str, PrintStream out) {
 		List<Relation<Boolean>> rels = str.relations;
 		out.println("structure of size " + str.getSize() + " with "
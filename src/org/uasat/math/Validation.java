@@ -20,6 +20,7 @@ package org.uasat.math;
 
 import java.text.*;
 import java.util.*;
+import java.util.function.*;
 
 import org.uasat.core.*;
 
@@ -51,6 +52,56 @@ public class Validation {
 				877);
 	}
 
+	void checkDeclaredConstants() {
+		final Tensor<Boolean> mask = Tensor.generate(6, 6,
+				new Func2<Boolean, Integer, Integer>() {
+					@Override
+					public Boolean call(Integer elem1, Integer elem2) {
+						return elem1.intValue() != elem2.intValue();
+					}
+				});
+
+		SatProblem problem = new SatProblem(new int[] { 6, 6 }) {
+			@Override
+			public <BOOL> BOOL compute(BoolAlgebra<BOOL> alg,
+					List<Tensor<BOOL>> tensors) {
+				Relation<BOOL> rel = new Relation<BOOL>(alg, tensors.get(0));
+				return rel.isEquivalence();
+			}
+		};
+		problem.verbose = false;
+
+		int variables = solver.getTotalVariables();
+		Tensor<Boolean> full = problem.solveAll(solver).get(0);
+		variables = solver.getTotalVariables() - variables;
+
+		problem = new SatProblem(mask) {
+			@Override
+			public <BOOL> BOOL compute(BoolAlgebra<BOOL> alg,
+					List<Tensor<BOOL>> tensors) {
+				Relation<BOOL> rel = new Relation<BOOL>(alg, tensors.get(0));
+				return rel.isEquivalence();
+			}
+		};
+		problem.verbose = false;
+		problem.fixUnmasked(true);
+
+		int fewer = solver.getTotalVariables();
+		Tensor<Boolean> fixed = problem.solveAll(solver).get(0);
+		fewer = solver.getTotalVariables() - fewer;
+
+		Set<Relation<Boolean>> rels = new HashSet<Relation<Boolean>>(
+				Relation.wrap(Tensor.unstack(full)));
+		int count = 0;
+		for (Relation<Boolean> rel : Relation.wrap(Tensor.unstack(fixed)))
+			if (rels.contains(rel))
+				count++;
+		if (rels.size() != count || fewer >= variables)
+			count = -1;
+		verify("A000110 the number of equivalences on a 6-element set with "
+				+ "a constant diagonal", count, 203);
+	}
+
 	void checkPartialOrders() {
 		SatProblem problem = new SatProblem(new int[] { 5, 5 }) {
 			@Override
@@ -279,6 +330,409 @@ public class Validation {
 		verify("A006117 the number of subspaces of Z_3^4", count, 212);
 	}
 
+	void checkClosedSets() {
+		GaloisConn<Boolean> galois = GaloisConn.wrap(Tensor.generate(12, 12,
+				new Func2<Boolean, Integer, Integer>() {
+					@Override
+					public Boolean call(Integer elem1, Integer elem2) {
+						return (elem2 + 1) % (elem1 + 1) == 0;
+					}
+				}));
+		List<Relation<Boolean>> rels = GaloisConn.findLeftClosedSets(solver,
+				galois, -1);
+
+		BitGaloisConn conn = BitGaloisConn.wrap(galois);
+		List<BitSet> sets = conn.findLeftClosedSets(-1);
+		conn.parallel = true;
+		boolean same = sets.equals(conn.findLeftClosedSets(-1));
+
+		List<BitSet> iterated = new ArrayList<BitSet>();
+		Iterator<BitSet> iter = conn.leftClosedIterator();
+		while (iter.hasNext())
+			iterated.add(iter.next());
+		same = same && sets.equals(iterated);
+
+		Set<Relation<Boolean>> found = new HashSet<Relation<Boolean>>();
+		for (BitSet set : sets)
+			found.add(BitGaloisConn.asRelation(12, set));
+
+		int count = found.size();
+		if (!same || count != sets.size() || count != rels.size()
+				|| !found.containsAll(rels))
+			count = -1;
+
+		verify("the number of closed sets of divisibility on 12 found by "
+				+ "NextClosure and SAT", count, 13);
+
+		int[][] covers = conn.getLeftUpperCovers(sets);
+		count = 0;
+		for (int[] list : covers)
+			count += list.length;
+		verify("the number of covers of the divisibility lattice on 12 with "
+				+ "a top element", count, 20);
+		verify("the number of primes up to 12 covering 1 there",
+				covers[0].length, 5);
+	}
+
+	void checkAutomorphisms(String name, final Structure<Boolean> str) {
+		SatProblem problem = new SatProblem(new int[] { str.getSize(),
+				str.getSize() }) {
+			@Override
+			public <BOOL> BOOL compute(BoolAlgebra<BOOL> alg,
+					List<Tensor<BOOL>> tensors) {
+				Permutation<BOOL> perm = new Permutation<BOOL>(alg,
+						tensors.get(0));
+				Operation<BOOL> op = perm.asOperation();
+
+				BOOL b = perm.isPermutation();
+				for (Relation<Boolean> rel : str.getRelations())
+					b = alg.and(b, op.preserves(Relation.lift(alg, rel)));
+				return b;
+			}
+		};
+		List<Tensor<Boolean>> perms = Tensor.unstack(problem.solveAll(solver)
+				.get(0));
+
+		PermGroup group = Structure.automorphisms(str);
+		int order = group.getOrder().intValue();
+
+		List<Operation<Boolean>> ops = new CompatibleOps(str, solver)
+				.findUnaryOps("automorphism", 0);
+		Set<Operation<Boolean>> found = new HashSet<Operation<Boolean>>(ops);
+
+		int count = 0;
+		for (Tensor<Boolean> tensor : perms) {
+			Permutation<Boolean> perm = Permutation.wrap(tensor);
+			if (group.contains(perm) && found.contains(perm.asOperation()))
+				count++;
+		}
+		if (perms.size() != order || found.size() != order
+				|| group.getElements(1).size() != 1)
+			count = -1;
+
+		verify("the order of the automorphism group of " + name, count,
+				order);
+	}
+
+	void checkAutomorphismGroups() {
+		Structure<Boolean> cycle = new Structure<Boolean>(
+				BoolAlgebra.INSTANCE, 6);
+		cycle.add(Relation.parse(6, "01 12 23 34 45 50"));
+		checkAutomorphisms("the directed 6-cycle", cycle);
+
+		Structure<Boolean> cube = new Structure<Boolean>(BoolAlgebra.INSTANCE,
+				8);
+		cube.add(PartialOrder.powerset(3).asRelation());
+		checkAutomorphisms("the poset 2^3", cube);
+
+		Structure<Boolean> graph = new Structure<Boolean>(
+				BoolAlgebra.INSTANCE, 5);
+		graph.add(Relation.parse(5, "01 10 23 32"));
+		graph.add(Relation.parse(5, "0 1 2 3"));
+		checkAutomorphisms("two disjoint edges on 5", graph);
+
+		Structure<Boolean> empty = new Structure<Boolean>(
+				BoolAlgebra.INSTANCE, 12);
+		Set<Operation<Boolean>> ops = new HashSet<Operation<Boolean>>(
+				new CompatibleOps(empty, solver).findUnaryOps("automorphism",
+						1000));
+		verify("the number of the first automorphisms of the empty structure "
+				+ "on 12", ops.size(), 1000);
+	}
+
+	void checkRelationOrbits() {
+		CompatibleRels rels = new CompatibleRels(Algebra.wrap(4), solver);
+		rels.symmetries = PermGroup.wrap(4, Permutation.symmetricGroup(4));
+
+		List<Relation<Boolean>> list = rels.findAllRels(2, -1);
+		verify("A000595 the number of binary relations on 4 up to isomorphism",
+				list.size(), 3044);
+
+		int count = 0;
+		for (int size : rels.getOrbitSizes(list))
+			count += size;
+		verify("the number of binary relations on 4 in these orbits", count,
+				65536);
+	}
+
+	void checkFingerprintSets() {
+		List<Relation<Boolean>> all = new ArrayList<Relation<Boolean>>();
+		for (int card = 0; card <= 9; card++)
+			all.addAll(Relation.subsets(9, card));
+
+		List<Relation<Boolean>> even = new ArrayList<Relation<Boolean>>();
+		FingerprintMap<Relation<Boolean>, Integer> map = new FingerprintMap<Relation<Boolean>, Integer>();
+		for (int i = 0; i < all.size(); i++) {
+			map.put(all.get(i), i);
+			if (i % 2 == 0)
+				even.add(all.get(i));
+		}
+		for (int i = 1; i < all.size(); i += 2)
+			map.remove(all.get(i));
+
+		int count = 0;
+		for (int i = 0; i < all.size(); i++) {
+			Integer value = map.get(all.get(i));
+			if (i % 2 == 0 && value != null && value == i)
+				count++;
+			else if (i % 2 == 1 && value != null)
+				count = -all.size();
+		}
+		if (map.size() != count)
+			count = -1;
+		verify("the number of subsets of 9 kept after removing every "
+				+ "second one from a fingerprint map", count, 256);
+
+		FingerprintSet<Relation<Boolean>> set = new FingerprintSet<Relation<Boolean>>(
+				all);
+		set.retainAll(even);
+		count = set.contains(Permutation.identity(9)) ? -1 : 0;
+		for (Relation<Boolean> rel : all)
+			if (set.contains(rel) == even.contains(rel))
+				count++;
+		if (set.size() != even.size())
+			count = -1;
+		verify("the number of subsets of 9 classified right after retainAll "
+				+ "on a fingerprint set", count, 512);
+	}
+
+	void checkPreservesCache() {
+		List<Operation<Boolean>> ops = new ArrayList<Operation<Boolean>>();
+		Iterator<int[]> iter = Util.cubeIterator(3, 3);
+		while (iter.hasNext()) {
+			int[] table = iter.next();
+			ops.add(Operation.parse(3, 1, "" + table[0] + table[1] + table[2]));
+		}
+		Relation<Boolean> order = Relation.lessOrEqual(3);
+
+		PreservesCache previous = PreservesCache.getShared();
+		PreservesCache cache = new PreservesCache(64);
+		PreservesCache.setShared(cache);
+
+		int count = 0;
+		for (int round = 0; round < 2; round++)
+			for (Operation<Boolean> op : ops)
+				if (op.preserves(order))
+					count++;
+		PreservesCache.setShared(previous);
+
+		verify("the number of cached checks of monotone unary operations on "
+				+ "the 3-chain", count, 20);
+		verify("the number of preserves cache hits", (int) cache.getHits(),
+				27);
+		verify("the number of preserves cache misses",
+				(int) cache.getMisses(), 27);
+	}
+
+	void checkSubpowers() {
+		Algebra<Boolean> lattice = Algebra.wrap(Operation.parse(2, 2, "00 01"),
+				Operation.parse(2, 2, "01 11"));
+
+		Tensor<Boolean> tensor = Tensor.constant(Util.createShape(2, 16),
+				Boolean.FALSE);
+		int[] tuple = new int[16];
+		for (int i = 0; i < 4; i++) {
+			for (int c = 0; c < 16; c++)
+				tuple[c] = (c >> i) & 1;
+			tensor.setElem(Boolean.TRUE, tuple);
+		}
+		Relation<Boolean> gens = Relation.wrap(tensor);
+
+		Relation<Boolean> rel = Algebra.generate(lattice, gens);
+		int count = Relation.cardinality(rel);
+		if (!lattice.isSubuniverse(rel) || !gens.isSubsetOf(rel))
+			count = -1;
+
+		verify("A007363 the number of elements of the free distributive "
+				+ "lattice on 4 generators", count, 166);
+
+		List<int[]> tuples = new ArrayList<int[]>();
+		for (int i = 0; i < 3; i++) {
+			tuple = new int[48];
+			for (int c = 0; c < 48; c++)
+				tuple[c] = (c >> i) & 1;
+			tuples.add(tuple);
+		}
+
+		SparseRelation sparse = Algebra.generate(lattice,
+				SparseRelation.create(2, 48, tuples));
+		verify("A007363 the number of elements of the free distributive "
+				+ "lattice on 3 generators in the 48th power",
+				sparse.getTupleCount(), 18);
+	}
+
+	void checkSparseRelations() {
+		BoolAlgebra<Boolean> dense = new BoolAlgebra<Boolean>(Boolean.TYPE,
+				Boolean.FALSE, Boolean.TRUE) {
+			@Override
+			public Boolean not(Boolean elem) {
+				return !elem.booleanValue();
+			}
+
+			@Override
+			public Boolean and(Boolean elem1, Boolean elem2) {
+				return elem1.booleanValue() && elem2.booleanValue();
+			}
+
+			@Override
+			public Boolean or(Boolean elem1, Boolean elem2) {
+				return elem1.booleanValue() || elem2.booleanValue();
+			}
+
+			@Override
+			public Boolean add(Boolean elem1, Boolean elem2) {
+				return elem1.booleanValue() != elem2.booleanValue();
+			}
+		};
+
+		Relation<Boolean> rel1 = Relation.parse(6, "012 123 234 345 450 501");
+		Relation<Boolean> rel2 = Relation.parse(6, "000 120 240 300 420 540");
+		SparseRelation sparse1 = SparseRelation.wrap(rel1);
+		SparseRelation sparse2 = SparseRelation.wrap(rel2);
+		Relation<Boolean> dense1 = Relation.lift(dense, rel1);
+		Relation<Boolean> dense2 = Relation.lift(dense, rel2);
+
+		List<Relation<Boolean>> sparse = new ArrayList<Relation<Boolean>>();
+		sparse.add(sparse1.project(2, 0).asRelation());
+		sparse.add(sparse1.compose(sparse2).asRelation());
+		sparse.add(sparse1.cartesian(sparse2).asRelation());
+		sparse.add(sparse1.product(sparse2).asRelation());
+		sparse.add(sparse2.power(2).asRelation());
+		sparse.add(SparseRelation.create(6, 3, sparse1.getTuples())
+				.asRelation());
+
+		List<Relation<Boolean>> expected = new ArrayList<Relation<Boolean>>();
+		expected.add(dense1.project(2, 0));
+		expected.add(dense1.compose(dense2));
+		expected.add(dense1.cartesian(dense2));
+		expected.add(dense1.product(dense2));
+		expected.add(dense2.power(2));
+		expected.add(dense1);
+
+		int count = 0;
+		for (int i = 0; i < sparse.size(); i++)
+			if (sparse.get(i).getTensor().equals(expected.get(i).getTensor()))
+				count++;
+
+		verify("the number of sparse relation kernels agreeing with the "
+				+ "dense ones", count, expected.size());
+
+		SparseRelation power = SparseRelation.wrap(
+				Relation.parse(2, "00 11")).power(16);
+		verify("the number of tuples in the 16th power of the equality on 2",
+				power.diagonal().getTupleCount(), 65536);
+	}
+
+	void checkSubsetRanks() {
+		int count = 0;
+		for (int card = 0; card <= 10; card++) {
+			Iterator<int[]> iter = Util.subsetIterator(10, card);
+			for (long rank = 0; iter.hasNext(); rank++) {
+				int[] subset = iter.next();
+				if (Util.getSubsetRank(subset) == rank
+						&& Arrays.equals(Util.getSubset(rank, card), subset))
+					count++;
+			}
+		}
+		verify("A000079 the number of ranked subsets of a 10-element set",
+				count, 1024);
+
+		final List<Relation<Boolean>> rels = new ArrayList<Relation<Boolean>>();
+		Consumer<Relation<Boolean>> action = new Consumer<Relation<Boolean>>() {
+			@Override
+			public void accept(Relation<Boolean> rel) {
+				rels.add(rel);
+			}
+		};
+
+		Spliterator<Relation<Boolean>> spliter = Relation.relationSpliterator(
+				3, 2, 4);
+		Spliterator<Relation<Boolean>> prefix = spliter.trySplit();
+		Spliterator<Relation<Boolean>> middle = spliter.trySplit();
+		prefix.forEachRemaining(action);
+		middle.forEachRemaining(action);
+		spliter.forEachRemaining(action);
+
+		count = 0;
+		Iterator<Relation<Boolean>> iter = Relation.relationIterator(3, 2, 4);
+		for (int i = 0; iter.hasNext(); i++) {
+			Relation<Boolean> rel = iter.next();
+			if (i < rels.size() && rel.equals(rels.get(i)))
+				count++;
+		}
+		if (rels.size() != count)
+			count = -1;
+
+		verify("the number of binary relations on 3 with 4 tuples split by "
+				+ "ranks", count, 126);
+	}
+
+	void checkOperationEncodings() {
+		Structure<Boolean> chain = new Structure<Boolean>(
+				BoolAlgebra.INSTANCE, 3);
+		chain.add(Relation.lessOrEqual(3));
+
+		CompatibleOps ops = new CompatibleOps(chain, solver);
+		int count = ops.findBinaryOps("", -1).size();
+		verify("the number of monotone binary operations on the "
+				+ "3-chain in one-hot encoding", count, 175);
+
+		ops.logEncoding = true;
+		count = ops.findBinaryOps("", -1).size();
+		verify("the number of monotone binary operations on the 3-chain in "
+				+ "log encoding", count, 175);
+
+		ops.logEncoding = false;
+		ops.ladderEncoding = true;
+		count = ops.findBinaryOps("", -1).size();
+		verify("the number of monotone binary operations on the 3-chain in "
+				+ "ladder encoding", count, 175);
+
+		SatProblem problem = new SatProblem(LadderOperation.getShape(3, 1)) {
+			@Override
+			public <BOOL> BOOL compute(BoolAlgebra<BOOL> alg,
+					List<Tensor<BOOL>> tensors) {
+				LadderOperation<BOOL> op = new LadderOperation<BOOL>(alg, 3,
+						tensors.get(0));
+				return alg.not(op.isValid());
+			}
+		};
+
+		count = problem.solveAll(solver).get(0).getLastDim();
+		verify("the number of invalid unary ladder tables on 3", count, 37);
+	}
+
+	void checkCaseIndices() {
+		DefByCases seq = new DefByCases(3);
+		seq.addAllDigarphs();
+		DefByCases par = new DefByCases(3);
+		par.addAllDigarphs();
+		par.parallel = true;
+
+		int[] table1 = seq.getCaseIndices(5);
+		int[] table2 = par.getCaseIndices(5);
+
+		int count = 0;
+		for (int p = 0; p < table1.length; p++) {
+			int[] tuple = new int[5];
+			for (int i = 0, q = p; i < tuple.length; i++, q /= 3)
+				tuple[i] = q % 3;
+
+			int index;
+			try {
+				index = seq.getCaseIndex(tuple);
+			} catch (IllegalArgumentException e) {
+				index = -1;
+			}
+
+			if (table1[p] == index && table2[p] == index)
+				count++;
+		}
+
+		verify("the number of ternary 5-tuples with the same digraph case "
+				+ "by table and by matching", count, 243);
+	}
+
 	private static DecimalFormat TIME_FORMAT = new DecimalFormat("0.00");
 
 	void validate() {
@@ -288,6 +742,7 @@ public class Validation {
 
 		checkFiniteGroups();
 		checkEquivalences();
+		checkDeclaredConstants();
 		checkNonIsomorphicDigraphs();
 		checkAntiChains();
 		checkPartialOrders();
@@ -299,6 +754,16 @@ public class Validation {
 		checkCommutativeSemigroups();
 		checkThreeColorableGraphs();
 		checkLinearExtensions();
+		checkClosedSets();
+		checkAutomorphismGroups();
+		checkRelationOrbits();
+		checkFingerprintSets();
+		checkPreservesCache();
+		checkSubpowers();
+		checkSparseRelations();
+		checkSubsetRanks();
+		checkOperationEncodings();
+		checkCaseIndices();
 
 		time = System.currentTimeMillis() - time;
 		System.out.println("Total variables: " + solver.getTotalVariables()
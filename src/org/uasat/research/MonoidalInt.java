@@ -46,7 +46,9 @@ public class MonoidalInt {
 			return;
 
 		GaloisConn<Boolean> gal = GaloisConn.compatiblity(ops, rels);
-		List<Relation<Boolean>> list = GaloisConn.findLeftClosedSets(SatSolver.getDefault(), gal, LIMIT);
+		List<Relation<Boolean>> list = new ArrayList<Relation<Boolean>>();
+		for (BitSet set : BitGaloisConn.wrap(gal).findLeftClosedSets(LIMIT))
+			list.add(BitGaloisConn.asRelation(ops.size(), set));
 
 		System.out.println("clones (" + what + "): " + list.size());
 		if (list.size() <= PRINT_LIMIT && ops.size() <= PRINT_LIMIT && rels.size() <= PRINT_LIMIT) {
@@ -71,6 +71,11 @@ public class CachedOps extends SatSolver<Integer> {
 		return solver.variable();
 	}
 
+	@Override
+	public Integer variable(boolean phase) {
+		return solver.variable(phase);
+	}
+
 	@Override
 	public void clause(List<Integer> clause) {
 		solver.clause(clause);
@@ -92,8 +97,10 @@ public class CachedOps extends SatSolver<Integer> {
 	}
 
 	@Override
-	public boolean solve() {
-		return solver.solve();
+	public Result solveLimited() {
+		solver.timeLimit = timeLimit;
+		solver.interruptible = interruptible;
+		return solver.solveLimited();
 	}
 
 	@Override
@@ -19,6 +19,7 @@
 package org.uasat.solvers;
 
 import java.util.*;
+import java.util.concurrent.*;
 
 import org.jnisat.*;
 
@@ -44,10 +45,13 @@ public class JniSat extends SatSolver<Integer> {
 		return totalSolves;
 	}
 
-	private final Solver solver;
+	private final String what;
+	private Solver solver;
+	private boolean unknown = false;
 
 	public JniSat(String what) {
 		super(Integer.TYPE, -1, 1);
+		this.what = what;
 		solver = Solver.create(what);
 		int a = solver.addVariable();
 		if (a != 1)
@@ -57,7 +61,12 @@ public class JniSat extends SatSolver<Integer> {
 
 	@Override
 	public void clear() {
-		solver.reset();
+		unknown = false;
+		if (solver != null)
+			solver.reset();
+		else
+			solver = Solver.create(what);
+
 		int a = solver.addVariable();
 		if (a != 1)
 			throw new IllegalStateException();
@@ -67,7 +76,14 @@ public class JniSat extends SatSolver<Integer> {
 	@Override
 	public Integer variable() {
 		totalVariables += 1;
-		return solver.addVariable();
+		return getSolver().addVariable();
+	}
+
+	@Override
+	public Integer variable(boolean phase) {
+		totalVariables += 1;
+		return getSolver().addVariable(phase ? Solver.FLAG_TRY_TRUE
+				: Solver.FLAG_TRY_FALSE);
 	}
 
 	@Override
@@ -76,36 +92,145 @@ public class JniSat extends SatSolver<Integer> {
 		int[] c = new int[clause.size()];
 		for (int i = 0; i < c.length; i++)
 			c[i] = clause.get(i);
-		solver.addClause(c);
+		getSolver().addClause(c);
 	}
 
 	@Override
 	public void clause(Integer lit1) {
 		totalClauses += 1;
-		solver.addClause(lit1);
+		getSolver().addClause(lit1);
 	}
 
 	@Override
 	public void clause(Integer lit1, Integer lit2) {
 		totalClauses += 1;
-		solver.addClause(lit1, lit2);
+		getSolver().addClause(lit1, lit2);
 	}
 
 	@Override
 	public void clause(Integer lit1, Integer lit2, Integer lit3) {
 		totalClauses += 1;
-		solver.addClause(lit1, lit2, lit3);
+		getSolver().addClause(lit1, lit2, lit3);
 	}
 
+	private ExecutorService worker;
+
+	/*
+	 * The permits for the native solves running on worker threads, held
+	 * until the native call returns, so it also bounds the number of
+	 * abandoned solves across all instances.
+	 */
+	private static final Semaphore RUNNING = new Semaphore(Runtime
+			.getRuntime().availableProcessors());
+
+	/*
+	 * Returns the native solver, or fails if the last solve returned UNKNOWN
+	 * and clear was not called since.
+	 */
+	private Solver getSolver() {
+		if (unknown)
+			throw new IllegalStateException(
+					"the last solve returned UNKNOWN, call clear first");
+		return solver;
+	}
+
+	private Result getUnknown() {
+		unknown = true;
+		return Result.UNKNOWN;
+	}
+
+	/**
+	 * The native solvers cannot be stopped from the outside, so with a time
+	 * limit or when interruptible the solver runs on a worker thread. If that
+	 * does not finish in time, then it is abandoned and keeps running in the
+	 * background, using a full CPU core and its memory, until it finishes on
+	 * its own, which may take arbitrarily long. At most one such solve per
+	 * available processor runs at any time for all JniSat instances,
+	 * abandoned or not: when none can be started within the time limit, the
+	 * result is UNKNOWN without solving. Use MiniSat, which kills its
+	 * process, when abandoned solves are not acceptable. After an UNKNOWN
+	 * result the solver must be cleared, which creates a fresh native solver
+	 * if the old one was abandoned.
+	 */
 	@Override
-	public boolean solve() {
+	public Result solveLimited() {
+		final Solver s = getSolver();
 		totalSolves += 1;
-		return solver.solve();
+
+		if (Thread.currentThread().isInterrupted())
+			return getUnknown();
+
+		if (timeLimit <= 0 && !interruptible)
+			return s.solve() ? Result.SATISFIABLE : Result.UNSATISFIABLE;
+
+		long start = System.currentTimeMillis();
+		try {
+			if (timeLimit <= 0)
+				RUNNING.acquire();
+			else if (!RUNNING.tryAcquire(timeLimit, TimeUnit.MILLISECONDS))
+				return getUnknown();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return getUnknown();
+		}
+
+		if (worker == null)
+			worker = Executors.newSingleThreadExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "jnisat-worker");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+
+		Future<Boolean> future;
+		try {
+			future = worker.submit(new Callable<Boolean>() {
+				@Override
+				public Boolean call() {
+					try {
+						return s.solve();
+					} finally {
+						RUNNING.release();
+					}
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			RUNNING.release();
+			throw e;
+		}
+
+		try {
+			boolean sat;
+			if (timeLimit <= 0)
+				sat = future.get();
+			else {
+				long remaining = timeLimit
+						- (System.currentTimeMillis() - start);
+				sat = future.get(Math.max(remaining, 0),
+						TimeUnit.MILLISECONDS);
+			}
+
+			return sat ? Result.SATISFIABLE : Result.UNSATISFIABLE;
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			throw new RuntimeException(e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (TimeoutException e) {
+		}
+
+		worker.shutdown();
+		worker = null;
+		solver = null;
+		return getUnknown();
 	}
 
 	@Override
 	public boolean decode(Integer term) {
-		return solver.getValue(term) > 0;
+		return getSolver().getValue(term) > 0;
 	}
 
 	@Override
@@ -129,6 +254,7 @@ public class JniSat extends SatSolver<Integer> {
 		else if (a == -b)
 			return -1;
 
+		Solver solver = getSolver();
 		int var = solver.addVariable(AUXILIARY_FLAGS);
 		solver.addClause(a, -var);
 		solver.addClause(b, -var);
@@ -152,6 +278,7 @@ public class JniSat extends SatSolver<Integer> {
 		else if (a == -b)
 			return 1;
 
+		Solver solver = getSolver();
 		int var = solver.addVariable(AUXILIARY_FLAGS);
 		solver.addClause(-a, var);
 		solver.addClause(-b, var);
@@ -173,6 +300,7 @@ public class JniSat extends SatSolver<Integer> {
 		else if (b == -1)
 			return a;
 
+		Solver solver = getSolver();
 		int var = solver.addVariable(AUXILIARY_FLAGS);
 		solver.addClause(a, b, -var);
 		solver.addClause(a, -b, var);
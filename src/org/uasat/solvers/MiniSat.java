@@ -21,6 +21,7 @@ package org.uasat.solvers;
 import java.io.*;
 import java.text.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 import org.uasat.core.*;
 
@@ -153,11 +154,18 @@ public class MiniSat extends SatSolver<Integer> {
 	protected static final DateFormat DATEFORMAT = new SimpleDateFormat(
 			"HH-mm-ss-SSS");
 
+	/**
+	 * The time limit and interrupts are enforced by killing the external
+	 * process, so this solver is always interruptible.
+	 */
 	@Override
-	public boolean solve() {
+	public Result solveLimited() {
 		totalSolves += 1;
 		solution = null;
 
+		if (Thread.currentThread().isInterrupted())
+			return Result.UNKNOWN;
+
 		File input = null;
 		PrintStream stream = null;
 
@@ -165,6 +173,7 @@ public class MiniSat extends SatSolver<Integer> {
 		File output = null;
 
 		Thread shutdown = null;
+		Process process = null;
 
 		try {
 			if (logfile == null) {
@@ -190,8 +199,12 @@ public class MiniSat extends SatSolver<Integer> {
 			args.add(input.getAbsolutePath());
 			args.add(output.getAbsolutePath());
 
-			final Process proc = Runtime.getRuntime().exec(
-					args.toArray(new String[args.size()]));
+			ProcessBuilder builder = new ProcessBuilder(args);
+			builder.redirectErrorStream(true);
+			builder.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+
+			final Process proc = builder.start();
+			process = proc;
 
 			shutdown = new Thread() {
 				@Override
@@ -203,22 +216,23 @@ public class MiniSat extends SatSolver<Integer> {
 			// TODO: close small window when process is started but hook is not
 			Runtime.getRuntime().addShutdownHook(shutdown);
 
-			BufferedReader eater = new BufferedReader(new InputStreamReader(
-					proc.getInputStream()));
-
-			// eat the standard output
-			while (eater.readLine() != null)
-				;
-
-			eater.close();
-
-			int result = -1;
+			boolean finished = false;
 			try {
-				result = proc.waitFor();
+				if (timeLimit > 0)
+					finished = proc.waitFor(timeLimit, TimeUnit.MILLISECONDS);
+				else {
+					proc.waitFor();
+					finished = true;
+				}
 			} catch (InterruptedException e) {
-				throw new RuntimeException(e.getMessage());
+				Thread.currentThread().interrupt();
 			}
 
+			if (!finished)
+				return Result.UNKNOWN;
+
+			int result = proc.exitValue();
+
 			if (result != 10 && result != 20)
 				throw new RuntimeException("MiniSat failed with error code "
 						+ result);
@@ -232,7 +246,7 @@ public class MiniSat extends SatSolver<Integer> {
 				if (line == null || !line.equals("UNSAT"))
 					throw new RuntimeException("MiniSat failed with UNSAT");
 
-				return false;
+				return Result.UNSATISFIABLE;
 			}
 
 			if (line == null || !line.equals("SAT"))
@@ -260,10 +274,13 @@ public class MiniSat extends SatSolver<Integer> {
 					solution[-n] = false;
 			}
 
-			return true;
+			return Result.SATISFIABLE;
 		} catch (IOException e) {
 			throw new RuntimeException(e);
 		} finally {
+			if (process != null && process.isAlive())
+				process.destroy();
+
 			if (stream != null)
 				stream.close();
 